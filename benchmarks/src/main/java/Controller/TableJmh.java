@@ -0,0 +1,71 @@
+package Controller;
+
+import Model.Program;
+import Model.ScheduleFixture;
+import View.ProgramTable;
+import View.TableData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of showing a loaded schedule: building the rows as
+ * {@code ProgramWorker.done} does, filling an empty {@link ProgramTable}
+ * as when switching channel, and refreshing a table that already shows
+ * the same programs as the periodic refresh does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableJmh {
+
+    private List<Program> programs;
+    private ArrayList<TableData> rows;
+    private ProgramTable shown;
+
+    @Setup
+    public void setUp() {
+
+        programs = ScheduleFixture.programsAroundNow();
+        rows = Controller.tableRows(programs, LocalDateTime.now());
+        shown = new ProgramTable();
+        shown.setTableData(rows);
+    }
+
+    @Benchmark
+    public ArrayList<TableData> buildRows() {
+
+        return Controller.tableRows(programs, LocalDateTime.now());
+    }
+
+    @Benchmark
+    public ProgramTable populateTable() {
+
+        var table = new ProgramTable();
+        table.setTableData(rows);
+        return table;
+    }
+
+    @Benchmark
+    public ProgramTable refreshTable() {
+
+        shown.setTableData(Controller.tableRows(programs,
+                LocalDateTime.now()));
+        return shown;
+    }
+}
@@ -0,0 +1,149 @@
+package Model;
+
+import Server.ApiServer;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the local HTTP API. Starts an {@link ApiServer} backed by a
+ * {@link StubServer} with upstream latency, then lets many clients request
+ * a mix of the channel list, schedules over a few days and what is on now.
+ * Reports requests per second, latency percentiles and how many upstream
+ * requests were needed.
+ */
+public class ApiLoadTest {
+
+    private static final int CLIENTS = 64;
+    private static final int REQUESTS_PER_CLIENT = 250;
+    private static final long UPSTREAM_LATENCY_MILLIS = 50;
+
+    public static void main(String[] args) throws Exception {
+
+        System.setProperty("radioinfo.store.dir",
+                Files.createTempDirectory("radioinfo-api").toString());
+        //as set by ApiServer, but the stub server is created first
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        try (StubServer upstream = new StubServer(UPSTREAM_LATENCY_MILLIS)) {
+
+            Model model = new Model(new XmlParser(ParserEngine.STAX,
+                    new HttpClientTransport(Duration.ofSeconds(5),
+                            Duration.ofSeconds(60)), upstream.baseUrl()));
+            model.loadChannels();
+
+            var server = new ApiServer(model,
+                    new InetSocketAddress("127.0.0.1", 0), 16);
+            server.start();
+
+            try {
+                List<URI> uris = uris(model, server.getPort());
+                ExecutorService clientPool = Executors.newFixedThreadPool(8);
+                var client = HttpClient.newBuilder().executor(clientPool)
+                        .build();
+
+                run("warm up", client, uris, upstream);
+                run("measured", client, uris, upstream);
+                clientPool.shutdown();
+
+            } finally {
+                server.stop(0);
+            }
+        }
+    }
+
+    private static List<URI> uris(Model model, int port) {
+
+        String base = "http://127.0.0.1:" + port;
+        var uris = new ArrayList<URI>();
+        LocalDate today = LocalDate.now();
+
+        uris.add(URI.create(base + "/channels"));
+        uris.add(URI.create(base + "/now"));
+
+        for (String name : model.getChannelNames()) {
+
+            int id = model.getChannelId(name);
+            uris.add(URI.create(base + "/channels/" + id + "/schedule"));
+
+            for (int day = 0; day < 3; day++) {
+                uris.add(URI.create(base + "/channels/" + id
+                        + "/schedule?from=" + today.plusDays(day)
+                        + "&to=" + today.plusDays(day + 1)));
+            }
+        }
+        return uris;
+    }
+
+    private static void run(String name, HttpClient client, List<URI> uris,
+                            StubServer upstream) throws Exception {
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        var done = new CountDownLatch(CLIENTS);
+        var failures = new LongAdder();
+        long[][] latencies = new long[CLIENTS][REQUESTS_PER_CLIENT];
+
+        upstream.reset();
+        long start = System.nanoTime();
+
+        for (int c = 0; c < CLIENTS; c++) {
+
+            long[] mine = latencies[c];
+
+            clients.execute(() -> {
+                try {
+                    var random = ThreadLocalRandom.current();
+
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+
+                        var request = HttpRequest.newBuilder(
+                                uris.get(random.nextInt(uris.size())))
+                                .header("Accept-Encoding", "gzip")
+                                .build();
+                        long sent = System.nanoTime();
+                        var response = client.send(request,
+                                HttpResponse.BodyHandlers.ofByteArray());
+                        mine[i] = System.nanoTime() - sent;
+
+                        if (response.statusCode() != 200) {
+                            failures.increment();
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.increment();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clients.shutdown();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream)
+                .sorted().toArray();
+        int total = all.length;
+
+        System.out.printf("%-9s %d requests in %5.2f s %8.0f req/s p50 %6.2f"
+                        + " ms p99 %6.2f ms max %7.2f ms %d upstream "
+                        + "requests %d failed%n", name, total, seconds,
+                total / seconds, all[total / 2] / 1e6,
+                all[(int) (total * 0.99)] / 1e6, all[total - 1] / 1e6,
+                upstream.requests(), failures.sum());
+    }
+}
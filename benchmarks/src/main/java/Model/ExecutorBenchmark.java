@@ -0,0 +1,95 @@
+package Model;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs many schedule fetches at once against a local {@link StubServer}
+ * that answers after a fixed latency, on the executors the controller can
+ * use: a pool of ten platform threads like {@code SwingWorker}'s, a
+ * platform thread per task and, on JDK 21, a virtual thread per task.
+ * Reports wall time, fetches per second and the peak number of threads.
+ */
+public class ExecutorBenchmark {
+
+    private static final int FETCHES = 1000;
+    private static final long LATENCY_MILLIS = 100;
+
+    public static void main(String[] args) throws Exception {
+
+        try (StubServer server = new StubServer(LATENCY_MILLIS)) {
+
+            run("swing pool (10)", Executors.newFixedThreadPool(10), server);
+            run("platform per task", Executors.newCachedThreadPool(),
+                    server);
+
+            ExecutorService virtual = newVirtualExecutor();
+
+            if (virtual != null) {
+                run("virtual per task", virtual, server);
+            } else {
+                System.out.println("virtual per task: needs JDK 21, running "
+                        + System.getProperty("java.version"));
+            }
+        }
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task, or null
+     * before JDK 21
+     */
+    private static ExecutorService newVirtualExecutor() throws Exception {
+
+        try {
+            return (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static void run(String name, ExecutorService executor,
+                            StubServer server) throws Exception {
+
+        XmlParser parser = new XmlParser(ParserEngine.STAX,
+                new HttpClientTransport(Duration.ofSeconds(5),
+                        Duration.ofSeconds(60)), server.baseUrl());
+        var threads = ManagementFactory.getThreadMXBean();
+        var done = new CountDownLatch(FETCHES);
+        var failures = new LongAdder();
+        LocalDate today = LocalDate.now();
+
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < FETCHES; i++) {
+
+            LocalDate date = today.plusDays(i);
+
+            executor.execute(() -> {
+                try {
+                    parser.channelEpisodes(132, date);
+                } catch (Exception e) {
+                    failures.increment();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        System.out.printf("%-18s %d fetches in %6.2f s %8.0f fetches/s "
+                        + "%5d peak threads %d failed%n", name, FETCHES,
+                seconds, FETCHES / seconds, threads.getPeakThreadCount(),
+                failures.sum());
+    }
+}
@@ -0,0 +1,82 @@
+package Model;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Measures how soon the first programs of a channel can be shown compared
+ * to when all of them are loaded, against a {@link StubServer} with a few
+ * bandwidths. Each run fetches the +-12h window with a new model, so both
+ * days are downloaded. The first rows are the first batch handed to the
+ * listener of {@link Model#getPrograms(String, boolean,
+ * java.util.function.Consumer)}, the last rows are its result.
+ */
+public class FirstRowsBenchmark {
+
+    private static final int RUNS = 7;
+
+    public static void main(String[] args) throws Exception {
+
+        run("local", new StubServer.Conditions().latency(2));
+        run("broadband", new StubServer.Conditions().latency(30)
+                .bandwidth(1 << 20));
+        run("mobile", new StubServer.Conditions().latency(80)
+                .bandwidth(256 << 10));
+        run("slow", new StubServer.Conditions().latency(150)
+                .bandwidth(64 << 10));
+    }
+
+    private static void run(String name, StubServer.Conditions conditions)
+            throws Exception {
+
+        try (StubServer server = new StubServer(
+                conditions.shiftDates(true))) {
+
+            System.out.printf("%-9s %s%n", name, conditions);
+
+            for (ParserEngine engine : new ParserEngine[]{
+                    ParserEngine.STAX, ParserEngine.DOM}) {
+
+                long[] first = new long[RUNS];
+                long[] last = new long[RUNS];
+
+                for (int i = 0; i < RUNS; i++) {
+
+                    System.setProperty("radioinfo.store.dir",
+                            Files.createTempDirectory("radioinfo-rows")
+                                    .toString());
+                    var model = new Model(new XmlParser(engine,
+                            new HttpClientTransport(Duration.ofSeconds(5),
+                                    Duration.ofSeconds(30)),
+                            server.baseUrl()));
+                    model.loadChannels();
+                    String channel = model.getChannelNames().get(0);
+
+                    long[] firstBatch = {0};
+                    long start = System.nanoTime();
+
+                    model.getPrograms(channel, true, batch -> {
+                        if (firstBatch[0] == 0) {
+                            firstBatch[0] = System.nanoTime() - start;
+                        }
+                    });
+                    last[i] = System.nanoTime() - start;
+                    first[i] = firstBatch[0];
+                }
+
+                System.out.printf("          %-5s first rows %7.1f ms  "
+                                + "all rows %7.1f ms  (median of %d)%n",
+                        engine, median(first), median(last), RUNS);
+            }
+        }
+    }
+
+    private static double median(long[] nanos) {
+
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
@@ -0,0 +1,82 @@
+package Model;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records the responses of the API into a folder that {@link StubServer}
+ * can replay: the channel list and the schedule of every channel for one
+ * day, as the same urls {@link XmlParser} requests. The API is read from
+ * {@code radioinfo.api.baseUrl}, Sveriges Radio's by default.
+ * <pre>
+ * Model.FixtureRecorder DIR [YYYY-MM-DD]
+ * </pre>
+ */
+public class FixtureRecorder {
+
+    private static final Pattern CHANNEL_ID = Pattern.compile(
+            "<channel id=\"(\\d+)\"");
+
+    public static void main(String[] args) throws Exception {
+
+        if (args.length < 1) {
+            System.err.println("usage: Model.FixtureRecorder DIR "
+                    + "[YYYY-MM-DD]");
+            System.exit(2);
+        }
+
+        Path dir = Files.createDirectories(Paths.get(args[0]));
+        LocalDate date = args.length > 1 ? LocalDate.parse(args[1])
+                : LocalDate.now();
+        String baseUrl = XmlParser.baseUrlFromProperty();
+        var client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+
+        String channels = new String(record(client,
+                baseUrl + "channels?pagination=false",
+                dir.resolve("channels.xml")), StandardCharsets.UTF_8);
+
+        Matcher m = CHANNEL_ID.matcher(channels);
+        int recorded = 0;
+
+        while (m.find()) {
+
+            String id = m.group(1);
+            record(client, baseUrl + "scheduledepisodes?pagination=false"
+                            + "&channelid=" + id + "&date=" + date,
+                    dir.resolve("scheduledepisodes-" + id + ".xml"));
+            recorded++;
+        }
+
+        System.out.println("recorded " + recorded + " schedules for "
+                + date + " into " + dir);
+    }
+
+    private static byte[] record(HttpClient client, String url, Path file)
+            throws Exception {
+
+        var response = client.send(HttpRequest.newBuilder(URI.create(url))
+                        .timeout(Duration.ofSeconds(30)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Server returned HTTP "
+                    + response.statusCode() + " for " + url);
+        }
+        Files.write(file, response.body());
+
+        return response.body();
+    }
+}
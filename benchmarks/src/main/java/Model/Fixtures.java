@@ -0,0 +1,34 @@
+package Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Loads recorded API responses from the benchmark resources.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+
+    }
+
+    /**
+     * @param name file name in the fixtures folder
+     * @return the raw bytes of the fixture
+     */
+    static byte[] load(String name) {
+
+        try (InputStream in = Fixtures.class.getResourceAsStream(
+                "/fixtures/" + name)) {
+
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture " + name);
+            }
+            return in.readAllBytes();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
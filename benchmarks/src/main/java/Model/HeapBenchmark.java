@@ -0,0 +1,142 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the heap used by a full week of schedules for every channel when
+ * held as one object per program, the way programs were stored before
+ * {@link ScheduleColumns}, and when held as columns. The recorded day is
+ * repeated for each day of the week and each channel, with the strings
+ * copied the way a fresh parse would create them.
+ */
+public class HeapBenchmark {
+
+    private static final int DAYS = 7;
+
+    public static void main(String[] args) throws Exception {
+
+        List<Channel> channels = new StaxDecoder().channels(
+                new ByteArrayInputStream(Fixtures.load("channels.xml")));
+        ScheduleColumns day = new StaxDecoder().episodes(
+                new ByteArrayInputStream(Fixtures.load(
+                        "scheduledepisodes.xml")));
+        int programs = channels.size() * DAYS * day.size();
+
+        long base = usedHeap();
+        List<List<LegacyProgram>> objects = objectGraph(channels, day);
+        long objectBytes = usedHeap() - base;
+
+        base = usedHeap();
+        List<ScheduleColumns> columns = columns(channels, day);
+        long columnBytes = usedHeap() - base;
+
+        System.out.printf("%d channels x %d days, %,d programs%n",
+                channels.size(), DAYS, programs);
+        System.out.printf("objects: %,12d bytes %,6d bytes/program%n",
+                objectBytes, objectBytes / programs);
+        System.out.printf("columns: %,12d bytes %,6d bytes/program%n",
+                columnBytes, columnBytes / programs);
+
+        //keep both alive until after the last measurement
+        System.out.println(objects.size() + columns.size() > 0 ? ""
+                : "empty");
+    }
+
+    private static List<List<LegacyProgram>> objectGraph(
+            List<Channel> channels, ScheduleColumns day) {
+
+        var schedules = new ArrayList<List<LegacyProgram>>();
+
+        for (int c = 0; c < channels.size(); c++) {
+            for (int d = 0; d < DAYS; d++) {
+
+                var schedule = new ArrayList<LegacyProgram>();
+
+                for (int i = 0; i < day.size(); i++) {
+
+                    schedule.add(new LegacyProgram(day.idAt(i),
+                            copy(day.titleAt(i)),
+                            copy(day.descriptionAt(i)),
+                            copy(day.imageUrlAt(i)),
+                            shift(day.startAt(i), d),
+                            shift(day.endAt(i), d)));
+                }
+                schedules.add(schedule);
+            }
+        }
+        return schedules;
+    }
+
+    private static List<ScheduleColumns> columns(List<Channel> channels,
+                                                 ScheduleColumns day) {
+
+        var pool = new StringPool();
+        var schedules = new ArrayList<ScheduleColumns>();
+
+        for (int c = 0; c < channels.size(); c++) {
+            for (int d = 0; d < DAYS; d++) {
+
+                var schedule = new ScheduleColumns.Builder(pool);
+
+                for (int i = 0; i < day.size(); i++) {
+
+                    schedule.add(day.idAt(i), copy(day.titleAt(i)),
+                            copy(day.descriptionAt(i)),
+                            copy(day.imageUrlAt(i)),
+                            day.startAt(i) + d * 86400L,
+                            day.endAt(i) + d * 86400L);
+                }
+                schedules.add(schedule.build());
+            }
+        }
+        return schedules;
+    }
+
+    private static String copy(String s) {
+
+        return s == null ? null : new String(s.toCharArray());
+    }
+
+    private static LocalDateTime shift(long seconds, int days) {
+
+        return ScheduleColumns.toLocalDateTime(seconds).plusDays(days);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A program with its own fields, as stored before the columns.
+     */
+    private static final class LegacyProgram {
+
+        private final int id;
+        private final String title;
+        private final String description;
+        private final String imageUrl;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        LegacyProgram(int id, String title, String description,
+                      String imageUrl, LocalDateTime startTime,
+                      LocalDateTime endTime) {
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.imageUrl = imageUrl;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package Model;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Measures time spent on the Event Dispatch Thread and bytes retained per
+ * icon when showing a large image at 350x350. The old way decodes the full
+ * image and scales it with getScaledInstance, the new way decodes a
+ * subsampled image off the EDT and scales it once.
+ */
+public class ImageBenchmark {
+
+    private static final int SIZE = 350;
+    private static final int ROUNDS = 30;
+
+    public static void main(String[] args) throws Exception {
+
+        byte[] data = createJpeg(1400, 1400);
+        var target = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+
+            long edtNanos = 0;
+            long retained = 0;
+
+            for (int i = 0; i < ROUNDS; i++) {
+
+                BufferedImage full = ImageIO.read(
+                        new ByteArrayInputStream(data));
+                long[] time = new long[1];
+
+                SwingUtilities.invokeAndWait(() -> {
+                    long start = System.nanoTime();
+                    Image tmp = full.getScaledInstance(SIZE, SIZE,
+                            Image.SCALE_SMOOTH);
+                    ImageIcon icon = new ImageIcon(tmp);
+                    icon.paintIcon(null, target.getGraphics(), 0, 0);
+                    time[0] = System.nanoTime() - start;
+                });
+                edtNanos += time[0];
+                //the scaled instance keeps the full image as its source
+                retained += ImageCache.sizeOf(full) + (long) SIZE * SIZE * 4;
+            }
+            report(warmup, "getScaledInstance", edtNanos, retained);
+
+            edtNanos = 0;
+            retained = 0;
+
+            for (int i = 0; i < ROUNDS; i++) {
+
+                BufferedImage scaled = ImageCache.decodeScaled(data, SIZE,
+                        SIZE);
+                long[] time = new long[1];
+
+                SwingUtilities.invokeAndWait(() -> {
+                    long start = System.nanoTime();
+                    ImageIcon icon = new ImageIcon(scaled);
+                    icon.paintIcon(null, target.getGraphics(), 0, 0);
+                    time[0] = System.nanoTime() - start;
+                });
+                edtNanos += time[0];
+                retained += ImageCache.sizeOf(scaled);
+            }
+            report(warmup, "decodeScaled", edtNanos, retained);
+        }
+    }
+
+    private static void report(int round, String name, long edtNanos,
+                               long retained) {
+
+        if (round > 0) {
+            System.out.printf("%-18s %8.3f ms EDT/image %,10d bytes/icon%n",
+                    name, edtNanos / 1e6 / ROUNDS, retained / ROUNDS);
+        }
+    }
+
+    private static byte[] createJpeg(int width, int height) throws Exception {
+
+        var image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16
+                        | (y * 255 / height) << 8 | ((x ^ y) & 0xFF));
+            }
+        }
+
+        var out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package Model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the cost of recording a metric, alone and with four
+ * threads recording into the same timer and counter. {@code timerRecord}
+ * leaves out the two clock reads of {@code timerStartStop}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsJmh {
+
+    private final Metrics metrics = new Metrics();
+    private final Metrics.Timer timer = metrics.timer("jmh.timer");
+    private final Metrics.Counter counter = metrics.counter("jmh.counter");
+
+    private long nanos = 1_234_567;
+
+    @Benchmark
+    public void timerRecord() {
+
+        timer.record(nanos);
+    }
+
+    @Benchmark
+    public void timerStartStop() {
+
+        timer.stop(timer.start());
+    }
+
+    @Benchmark
+    public void counterIncrement() {
+
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void timerStartStopContended() {
+
+        timer.stop(timer.start());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void counterIncrementContended() {
+
+        counter.increment();
+    }
+}
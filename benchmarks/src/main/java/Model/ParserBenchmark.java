@@ -0,0 +1,72 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares the parser engines on a recorded schedule. The xml engines read
+ * the xml fixture and the json engine the json recording of the same
+ * schedule. Reports payload size, episodes per second and bytes allocated
+ * per episode for each engine.
+ */
+public class ParserBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 5000;
+
+    public static void main(String[] args) throws Exception {
+
+        byte[] xml = Fixtures.load("scheduledepisodes.xml");
+        byte[] json = Fixtures.load("scheduledepisodes.json");
+
+        for (ParserEngine engine : ParserEngine.values()) {
+
+            run(engine, engine == ParserEngine.JSON ? json : xml);
+        }
+    }
+
+    /**
+     * Parses the schedule repeatedly with one engine and prints the result.
+     * @param engine engine to measure
+     * @param schedule recorded response
+     */
+    private static void run(ParserEngine engine, byte[] schedule)
+            throws Exception {
+
+        Decoder decoder = engine.createDecoder();
+        int episodes = 0;
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+
+            episodes = decoder.episodes(
+                    new ByteArrayInputStream(schedule)).size();
+        }
+
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+
+            decoder.episodes(new ByteArrayInputStream(schedule));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - bytesBefore;
+        long total = (long) episodes * MEASURED_ROUNDS;
+
+        System.out.printf("%-5s %,8d bytes payload %,12.0f episodes/s"
+                        + " %,10d bytes/episode%n", engine, schedule.length,
+                total / (elapsed / 1e9), allocated / total);
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread
+     */
+    private static long allocatedBytes() {
+
+        var threads = (com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean();
+
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,60 @@
+package Model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of decoding the recorded channel list and schedule with
+ * each xml engine, as {@link XmlParser#channelEpisodes} does once the
+ * response has been read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserJmh {
+
+    //names of ParserEngine constants, the generated code can only set
+    //parameters of public types
+    @Param({"STAX", "DOM"})
+    public String engine;
+
+    private Decoder decoder;
+    private byte[] channels;
+    private byte[] schedule;
+
+    @Setup
+    public void setUp() {
+
+        decoder = ParserEngine.valueOf(engine).createDecoder();
+        channels = Fixtures.load("channels.xml");
+        schedule = Fixtures.load("scheduledepisodes.xml");
+    }
+
+    @Benchmark
+    public ArrayList<Channel> decodeChannels() throws Exception {
+
+        return decoder.channels(new ByteArrayInputStream(channels));
+    }
+
+    @Benchmark
+    public ScheduleColumns decodeSchedule() throws Exception {
+
+        return decoder.episodes(new ByteArrayInputStream(schedule));
+    }
+}
@@ -0,0 +1,61 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Replays two days of viewing every channel's +-12h schedule every half
+ * hour against a local {@link StubServer} and counts the requests the
+ * {@link FetchPlanner} makes. Before the planner every view was one request
+ * with a url that was never repeated.
+ */
+public class PlannerBenchmark {
+
+    private static final int HOURS = 48;
+    private static final int VIEWS_PER_HOUR = 2;
+
+    public static void main(String[] args) throws Exception {
+
+        List<Channel> channels = new StaxDecoder().channels(
+                new ByteArrayInputStream(Fixtures.load("channels.xml")));
+
+        try (StubServer server = new StubServer()) {
+
+            XmlParser parser = new XmlParser(ParserEngine.STAX,
+                    new HttpClientTransport(Duration.ofSeconds(5),
+                            Duration.ofSeconds(15)), server.baseUrl());
+            var planner = new FetchPlanner(parser,
+                    new ScheduleCache(Long.MAX_VALUE / 2, 1024, 64L << 20));
+
+            LocalDateTime start = LocalDateTime.now().withMinute(0)
+                    .withSecond(0).withNano(0);
+            int views = 0;
+            int maxPerView = 0;
+
+            for (int step = 0; step < HOURS * VIEWS_PER_HOUR; step++) {
+
+                LocalDateTime now = start.plusMinutes(
+                        step * 60L / VIEWS_PER_HOUR);
+
+                for (Channel c : channels) {
+
+                    long before = planner.getDaysFetched();
+                    planner.schedule(c.getId(), now.minusHours(12),
+                            now.plusHours(12), false);
+                    maxPerView = Math.max(maxPerView,
+                            (int) (planner.getDaysFetched() - before));
+                    views++;
+                }
+            }
+
+            System.out.printf("%d views, %d day fetches (%.3f per view, "
+                            + "at most %d), %d served from cache%n", views,
+                    planner.getDaysFetched(),
+                    (double) planner.getDaysFetched() / views, maxPerView,
+                    planner.getDaysHeld());
+            System.out.printf("without the planner: %d requests%n", views);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+
+/**
+ * The recorded schedule, moved in time so it starts two days ago. The
+ * recording covers about five days, so the window of 12 hours around now
+ * is always full, as it is when the application runs.
+ */
+public final class ScheduleFixture {
+
+    private ScheduleFixture() {
+
+    }
+
+    /**
+     * @return the moved schedule as columns
+     */
+    static ScheduleColumns aroundNow() {
+
+        ScheduleColumns recorded;
+
+        try {
+            recorded = ParserEngine.STAX.createDecoder().episodes(
+                    new ByteArrayInputStream(
+                            Fixtures.load("scheduledepisodes.xml")));
+        } catch (Exception e) {
+            throw new IllegalStateException("Fixture could not be decoded",
+                    e);
+        }
+
+        long start = ScheduleColumns.toEpochSecond(LocalDateTime.now()
+                .truncatedTo(ChronoUnit.HOURS).minusDays(2));
+        long shift = start - recorded.firstStart();
+        var moved = new ScheduleColumns.Builder(new StringPool());
+
+        for (int row = 0; row < recorded.size(); row++) {
+
+            moved.add(recorded.idAt(row), recorded.titleAt(row),
+                    recorded.descriptionAt(row), recorded.imageUrlAt(row),
+                    recorded.startAt(row) + shift,
+                    recorded.endAt(row) + shift);
+        }
+        return moved.build();
+    }
+
+    /**
+     * @return the programs of the moved schedule within 12 hours of now,
+     * as shown in the window
+     */
+    public static ArrayList<Program> programsAroundNow() {
+
+        LocalDateTime now = LocalDateTime.now();
+
+        return aroundNow().starting(
+                ScheduleColumns.toEpochSecond(now.minusHours(12)) + 1,
+                ScheduleColumns.toEpochSecond(now.plusHours(12)));
+    }
+}
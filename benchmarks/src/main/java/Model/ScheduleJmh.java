@@ -0,0 +1,74 @@
+package Model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * JMH benchmarks of the model's work on a decoded schedule: parsing the
+ * API's time stamps and the 12 hour window filter of
+ * {@link Model#getPrograms(String)} on a held schedule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleJmh {
+
+    private String[] times;
+    private int nextTime;
+    private ScheduleColumns held;
+
+    @Setup
+    public void setUp() {
+
+        held = ScheduleFixture.aroundNow();
+
+        var found = new ArrayList<String>();
+        Matcher m = Pattern.compile("<starttimeutc>([^<]+)<").matcher(
+                new String(Fixtures.load("scheduledepisodes.xml"),
+                        StandardCharsets.UTF_8));
+
+        while (m.find()) {
+            found.add(m.group(1));
+        }
+        times = found.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public LocalDateTime formatDateTime() {
+
+        nextTime = nextTime + 1 == times.length ? 0 : nextTime + 1;
+        return XmlParser.formatDateTime(times[nextTime]);
+    }
+
+    /**
+     * The filter as run by {@link Model#getPrograms(String, boolean)} once
+     * the schedule is held.
+     */
+    @Benchmark
+    public ArrayList<Program> windowFilter() {
+
+        LocalDateTime now = LocalDateTime.now();
+        long past = ScheduleColumns.toEpochSecond(now.minusHours(12));
+        long future = ScheduleColumns.toEpochSecond(now.plusHours(12));
+
+        return held.starting(past + 1, future);
+    }
+}
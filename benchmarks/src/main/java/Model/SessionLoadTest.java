@@ -0,0 +1,225 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Drives simulated sessions through {@link Model} against a
+ * {@link StubServer}, under a few network conditions. Each session is its
+ * own application: a model with its own caches and store folder, pointed
+ * at the stand-in with {@code radioinfo.api.baseUrl}. A session loads the
+ * channels and then, with a short pause between each, either switches to
+ * a random channel or refreshes the current one, bypassing the cache as
+ * the refresh button does. Reports p50/p95/p99 of the time from asking
+ * for the programs until they are filtered and the next refresh is
+ * planned, as a {@code ProgramWorker} does.
+ * <p>
+ * The number of sessions and of actions per session are given with
+ * {@code --sessions} and {@code --actions}, 32 and 40 by default.
+ */
+public class SessionLoadTest {
+
+    private static final long THINK_MILLIS = 100;
+    private static final double REFRESH_SHARE = 0.3;
+
+    private final int sessionCount;
+    private final int actions;
+
+    private SessionLoadTest(int sessionCount, int actions) {
+
+        this.sessionCount = sessionCount;
+        this.actions = actions;
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        int sessions = 32;
+        int actions = 40;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--sessions": sessions = Integer.parseInt(value); break;
+                case "--actions": actions = Integer.parseInt(value); break;
+                default:
+                    throw new IllegalArgumentException("Unknown option "
+                            + args[i]);
+            }
+        }
+
+        var test = new SessionLoadTest(sessions, actions);
+
+        //the first run also compiles the decoders, its tail is not the
+        //network's
+        test.run("warm up", new StubServer.Conditions().latency(2));
+        test.run("local", new StubServer.Conditions().latency(2));
+        test.run("broadband", new StubServer.Conditions().latency(30)
+                .jitter(20).bandwidth(4 << 20).errorRate(0.001));
+        test.run("mobile", new StubServer.Conditions().latency(80)
+                .jitter(150).bandwidth(256 << 10).errorRate(0.01));
+    }
+
+    private void run(String name, StubServer.Conditions conditions)
+            throws Exception {
+
+        try (StubServer server = new StubServer(
+                conditions.shiftDates(true))) {
+
+            System.setProperty("radioinfo.api.baseUrl", server.baseUrl());
+            Path stores = Files.createTempDirectory("radioinfo-sessions");
+
+            var models = new ArrayList<Model>();
+
+            for (int i = 0; i < sessionCount; i++) {
+
+                //the store folder is read when the model is created
+                System.setProperty("radioinfo.store.dir",
+                        stores.resolve("session-" + i).toString());
+                models.add(new Model());
+            }
+
+            long[][] switches = new long[sessionCount][];
+            long[][] refreshes = new long[sessionCount][];
+            ExecutorService sessions = Executors.newFixedThreadPool(
+                    sessionCount);
+            var done = new CountDownLatch(sessionCount);
+            long start = System.nanoTime();
+
+            for (int i = 0; i < sessionCount; i++) {
+
+                int session = i;
+
+                sessions.execute(() -> {
+                    try {
+                        var times = session(models.get(session));
+                        switches[session] = times.get(0);
+                        refreshes[session] = times.get(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        System.err.println("Session " + session + " failed "
+                                + e.toString());
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            done.await();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            sessions.shutdown();
+
+            for (Model model : models) {
+                model.flushStore();
+            }
+            delete(stores);
+
+            System.out.printf("%-9s %s%n", name, conditions);
+            report("switch", switches);
+            report("refresh", refreshes);
+            System.out.printf("          %d sessions in %.1f s, %d upstream "
+                            + "requests, %d injected errors%n", sessionCount,
+                    seconds, server.requests(), server.errors());
+        }
+    }
+
+    /**
+     * Runs one session.
+     * @return the switch and the refresh latencies in nanoseconds
+     */
+    private List<long[]> session(Model model)
+            throws InterruptedException {
+
+        var random = ThreadLocalRandom.current();
+
+        //a user whose channel list failed to load starts the program again
+        model.loadChannels();
+        while (model.getChannelNames().isEmpty()) {
+            Thread.sleep(THINK_MILLIS);
+            model.loadChannels();
+        }
+        List<String> channels = model.getChannelNames();
+        String current = channels.get(random.nextInt(channels.size()));
+
+        long[] switches = new long[actions];
+        long[] refreshes = new long[actions];
+        int switched = 0;
+        int refreshed = 0;
+
+        for (int i = 0; i < actions; i++) {
+
+            Thread.sleep(random.nextLong(THINK_MILLIS + 1));
+            boolean refresh = random.nextDouble() < REFRESH_SHARE;
+
+            if (!refresh) {
+                current = channels.get(random.nextInt(channels.size()));
+            }
+
+            long start = System.nanoTime();
+            model.getPrograms(current, refresh);
+            model.nextRefresh(current);
+            long elapsed = System.nanoTime() - start;
+
+            if (refresh) {
+                refreshes[refreshed++] = elapsed;
+            } else {
+                switches[switched++] = elapsed;
+            }
+        }
+        return List.of(Arrays.copyOf(switches, switched),
+                Arrays.copyOf(refreshes, refreshed));
+    }
+
+    /**
+     * Removes a folder and everything in it.
+     */
+    private static void delete(Path folder) throws IOException {
+
+        try (Stream<Path> paths = Files.walk(folder)) {
+
+            for (Path path : (Iterable<Path>) paths
+                    .sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void report(String action, long[][] latencies) {
+
+        //a failed session has no latencies
+        long[] all = Arrays.stream(latencies).filter(Objects::nonNull)
+                .flatMapToLong(Arrays::stream).sorted().toArray();
+
+        if (all.length == 0) {
+            return;
+        }
+
+        System.out.printf("          %-8s %5d  p50 %7.1f ms  p95 %7.1f ms"
+                        + "  p99 %7.1f ms%n", action, all.length,
+                percentile(all, 0.50), percentile(all, 0.95),
+                percentile(all, 0.99));
+    }
+
+    /**
+     * @return the value at the percentile of sorted nanoseconds, in
+     * milliseconds
+     */
+    private static double percentile(long[] sorted, double p) {
+
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,91 @@
+package Model;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Compares a cold start from the on-disk {@link ScheduleStore} with fetching
+ * and parsing every schedule from a local {@link StubServer}.
+ */
+public class StoreBenchmark {
+
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) throws Exception {
+
+        Path directory = Files.createTempDirectory("radioinfo-store");
+        ScheduleStore store = new ScheduleStore(directory);
+
+        ArrayList<Channel> channels = new StaxDecoder().channels(
+                new ByteArrayInputStream(Fixtures.load("channels.xml")));
+        byte[] schedule = Fixtures.load("scheduledepisodes.xml");
+
+        var schedules = new LinkedHashMap<ScheduleCache.Key,
+                ScheduleColumns>();
+        LocalDate today = LocalDate.now();
+
+        for (Channel c : channels) {
+
+            schedules.put(new ScheduleCache.Key(c.getId(), today, today),
+                    new StaxDecoder().episodes(
+                            new ByteArrayInputStream(schedule)));
+        }
+
+        store.save(channels, schedules);
+        long fileSize = Files.size(directory.resolve("schedules.bin"));
+
+        for (int i = 0; i < ROUNDS; i++) {
+            store.load();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            store.load();
+        }
+        double storeMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+        double networkMillis;
+
+        try (StubServer server = new StubServer()) {
+
+            for (int i = 0; i < 10; i++) {
+                fetchAll(server, channels);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                fetchAll(server, channels);
+            }
+            networkMillis = (System.nanoTime() - start) / 1e6 / 20;
+        }
+
+        System.out.printf("store:   %,d bytes, %.3f ms to load %d channels%n",
+                fileSize, storeMillis, channels.size());
+        System.out.printf("network: %.3f ms to fetch and parse %d channels%n",
+                networkMillis, channels.size());
+    }
+
+    /**
+     * Fetches every schedule the way a cold start does. The parser and its
+     * transport are new each round, so no validators are remembered and
+     * every response is downloaded and decoded instead of answered with
+     * 304 Not Modified.
+     */
+    private static void fetchAll(StubServer server,
+                                 ArrayList<Channel> channels)
+            throws Exception {
+
+        XmlParser parser = new XmlParser(ParserEngine.STAX,
+                new HttpClientTransport(Duration.ofSeconds(5),
+                        Duration.ofSeconds(15)), server.baseUrl());
+
+        parser.channelParser();
+
+        for (Channel c : channels) {
+            parser.channelEpisodes(c.getId(), LocalDate.now());
+        }
+    }
+}
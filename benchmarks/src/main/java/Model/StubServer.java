@@ -0,0 +1,580 @@
+package Model;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for Sveriges Radio API that replays recorded responses.
+ * Supports gzip and ETag revalidation, and counts the body bytes it writes
+ * so transports can be compared. The network can be made worse with
+ * {@link Conditions}: latency, jitter, a bandwidth limit and an error rate.
+ * Waiting is done by a scheduler thread, so slow responses do not hold the
+ * server threads.
+ * <p>
+ * Responses are read from a folder written by {@link FixtureRecorder} when
+ * one is given, otherwise the bundled fixtures are used. A schedule is
+ * looked up as {@code scheduledepisodes-<channelid>.xml} first and then as
+ * {@code scheduledepisodes.xml}, so one recording can stand in for every
+ * channel.
+ * <p>
+ * Can also be run on its own, and the application pointed at it with the
+ * system property {@code radioinfo.api.baseUrl}:
+ * <pre>
+ * Model.StubServer [--port N] [--latency MS] [--jitter MS]
+ *      [--bandwidth BYTES_PER_SECOND] [--errors RATE] [--dir DIR]
+ * </pre>
+ */
+class StubServer implements AutoCloseable {
+
+    //how often a bandwidth limited response writes its next chunk
+    private static final long TICK_MILLIS = 20;
+
+    //marks a response that is not in the recordings
+    private static final byte[] MISSING = new byte[0];
+
+    private static final Pattern SCHEDULE_DATE = Pattern.compile(
+            "(<(?:starttimeutc|endtimeutc)>)(\\d{4}-\\d{2}-\\d{2})");
+    private static final Pattern JSON_SCHEDULE_DATE = Pattern.compile(
+            "(\"(?:starttimeutc|endtimeutc)\"\\s*:\\s*\"/Date\\()(-?\\d+)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService delayer;
+    private final Conditions conditions;
+    private final Path recordings;
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<>();
+
+    //schedules moved to a date, and compressed bodies, so replaying does
+    //not compete with the clients for the processor
+    private final Map<String, byte[]> shifted = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, byte[]> eldest) {
+                    return size() > 64;
+                }
+            });
+    private final Map<byte[], byte[]> gzipped = Collections.synchronizedMap(
+            new WeakHashMap<>());
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Starts the server on a free local port.
+     * @throws IOException if the server could not be started
+     */
+    StubServer() throws IOException {
+
+        this(new Conditions());
+    }
+
+    /**
+     * Starts the server on a free local port.
+     * @param latencyMillis delay before each response is written
+     * @throws IOException if the server could not be started
+     */
+    StubServer(long latencyMillis) throws IOException {
+
+        this(new Conditions().latency(latencyMillis));
+    }
+
+    /**
+     * Starts the server on a free local port, replaying the bundled
+     * fixtures.
+     * @param conditions network conditions to simulate
+     * @throws IOException if the server could not be started
+     */
+    StubServer(Conditions conditions) throws IOException {
+
+        this(conditions, null, 0);
+    }
+
+    /**
+     * Starts the server.
+     * @param conditions network conditions to simulate
+     * @param recordings folder of recorded responses, or null for the
+     * bundled fixtures
+     * @param port local port, 0 for any free port
+     * @throws IOException if the server could not be started
+     */
+    StubServer(Conditions conditions, Path recordings, int port)
+            throws IOException {
+
+        this.conditions = conditions;
+        this.recordings = recordings;
+        delayer = Executors.newSingleThreadScheduledExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port),
+                1024);
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.createContext("/api/v2/channels", exchange -> delay(exchange,
+                response("channels", exchange)));
+        server.createContext("/api/v2/scheduledepisodes",
+                exchange -> delay(exchange, schedule(exchange)));
+        server.start();
+    }
+
+    /**
+     * @return base url to pass to the parser
+     */
+    String baseUrl() {
+
+        return "http://127.0.0.1:" + server.getAddress().getPort()
+                + "/api/v2/";
+    }
+
+    /**
+     * @return body bytes written since the last reset
+     */
+    long bytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * @return requests handled since the last reset
+     */
+    long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * @return injected errors since the last reset
+     */
+    long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * Resets the counters.
+     */
+    void reset() {
+
+        bytesSent.reset();
+        requests.reset();
+        errors.reset();
+    }
+
+    /**
+     * Looks up a recorded response, null if there is none.
+     * @param name name without extension
+     */
+    private byte[] response(String name, HttpExchange exchange) {
+
+        String file = name + (isJson(exchange) ? ".json" : ".xml");
+
+        byte[] body = responses.computeIfAbsent(file, f -> {
+
+            try {
+                if (recordings != null
+                        && Files.isRegularFile(recordings.resolve(f))) {
+                    return Files.readAllBytes(recordings.resolve(f));
+                }
+                return Fixtures.load(f);
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (IllegalArgumentException e) {
+                return MISSING;
+            }
+        });
+        return body == MISSING ? null : body;
+    }
+
+    /**
+     * Looks up the schedule of the requested channel, moved to the
+     * requested date if the conditions ask for it.
+     */
+    private byte[] schedule(HttpExchange exchange) {
+
+        String channelId = parameter(exchange, "channelid");
+        String name = "scheduledepisodes-" + channelId;
+        byte[] body = channelId == null ? null : response(name, exchange);
+
+        if (body == null) {
+            name = "scheduledepisodes";
+            body = response(name, exchange);
+        }
+
+        String date = parameter(exchange, "date");
+
+        if (body == null || !conditions.shiftDates || date == null) {
+            return body;
+        }
+
+        byte[] recorded = body;
+        boolean json = isJson(exchange);
+
+        try {
+            LocalDate day = LocalDate.parse(date);
+
+            return shifted.computeIfAbsent(name + (json ? ".json@" : ".xml@")
+                    + day, key -> json ? shiftJson(recorded, day)
+                    : shift(recorded, day));
+
+        } catch (DateTimeParseException e) {
+            return body;
+        }
+    }
+
+    /**
+     * Moves the times of a recorded xml schedule by whole days, so its
+     * first day becomes the given date.
+     */
+    private static byte[] shift(byte[] xml, LocalDate date) {
+
+        Matcher m = SCHEDULE_DATE.matcher(new String(xml,
+                StandardCharsets.UTF_8));
+        var shifted = new StringBuilder(xml.length + 16);
+        long days = 0;
+        boolean first = true;
+
+        while (m.find()) {
+
+            LocalDate recorded = LocalDate.parse(m.group(2));
+
+            if (first) {
+                days = ChronoUnit.DAYS.between(recorded, date);
+                first = false;
+            }
+            m.appendReplacement(shifted, m.group(1)
+                    + recorded.plusDays(days));
+        }
+        m.appendTail(shifted);
+
+        return shifted.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Moves the {@code /Date(milliseconds)/} times of a recorded json
+     * schedule by whole days, so its first day becomes the given date.
+     */
+    private static byte[] shiftJson(byte[] json, LocalDate date) {
+
+        Matcher m = JSON_SCHEDULE_DATE.matcher(new String(json,
+                StandardCharsets.UTF_8));
+        var shifted = new StringBuilder(json.length + 16);
+        long millis = 0;
+        boolean first = true;
+
+        while (m.find()) {
+
+            long recorded = Long.parseLong(m.group(2));
+
+            if (first) {
+                LocalDate day = Instant.ofEpochMilli(recorded)
+                        .atOffset(ZoneOffset.UTC).toLocalDate();
+                millis = TimeUnit.DAYS.toMillis(
+                        ChronoUnit.DAYS.between(day, date));
+                first = false;
+            }
+            m.appendReplacement(shifted, m.group(1) + (recorded + millis));
+        }
+        m.appendTail(shifted);
+
+        return shifted.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the response now, or after the latency and jitter from the
+     * delay thread.
+     */
+    private void delay(HttpExchange exchange, byte[] body) throws IOException {
+
+        long millis = conditions.latencyMillis;
+
+        if (conditions.jitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(
+                    conditions.jitterMillis + 1);
+        }
+
+        if (millis <= 0) {
+            respond(exchange, body);
+            return;
+        }
+
+        delayer.schedule(() -> executor.execute(() -> {
+            try {
+                respond(exchange, body);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }), millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a response, honouring If-None-Match and Accept-Encoding, or an
+     * injected error.
+     */
+    private void respond(HttpExchange exchange, byte[] body)
+            throws IOException {
+
+        requests.increment();
+
+        if (body == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        if (conditions.errorRate > 0
+                && ThreadLocalRandom.current().nextDouble()
+                < conditions.errorRate) {
+
+            errors.increment();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        String etag = "\"" + Integer.toHexString(Arrays.hashCode(body))
+                + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Content-Type", isJson(exchange)
+                ? "application/json; charset=utf-8"
+                : "text/xml; charset=utf-8");
+
+        if (etag.equals(exchange.getRequestHeaders().getFirst(
+                "If-None-Match"))) {
+
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        String accept = exchange.getRequestHeaders().getFirst(
+                "Accept-Encoding");
+
+        if (accept != null && accept.contains("gzip")) {
+
+            body = gzipped.computeIfAbsent(body, StubServer::gzip);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+
+        exchange.sendResponseHeaders(200, body.length);
+
+        if (conditions.bytesPerSecond > 0) {
+            write(exchange, exchange.getResponseBody(), body, 0);
+            return;
+        }
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        bytesSent.add(body.length);
+    }
+
+    /**
+     * Writes the next chunk of a bandwidth limited response and schedules
+     * the one after it.
+     */
+    private void write(HttpExchange exchange, OutputStream out, byte[] body,
+                       int offset) {
+
+        int chunk = (int) Math.max(1,
+                conditions.bytesPerSecond * TICK_MILLIS / 1000);
+        int end = Math.min(body.length, offset + chunk);
+
+        try {
+            out.write(body, offset, end - offset);
+            out.flush();
+
+            if (end == body.length) {
+                out.close();
+                bytesSent.add(body.length);
+                return;
+            }
+        } catch (IOException e) {
+            exchange.close();
+            return;
+        }
+
+        delayer.schedule(() -> executor.execute(
+                () -> write(exchange, out, body, end)),
+                TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isJson(HttpExchange exchange) {
+
+        String query = exchange.getRequestURI().getRawQuery();
+        return query != null && query.contains("format=json");
+    }
+
+    private static String parameter(HttpExchange exchange, String name) {
+
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if (query == null) {
+            return null;
+        }
+
+        for (String pair : query.split("&")) {
+
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    private static byte[] gzip(byte[] data) {
+
+        var bytes = new ByteArrayOutputStream();
+
+        try (var out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void close() {
+
+        server.stop(0);
+        executor.shutdownNow();
+        delayer.shutdownNow();
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     */
+    public static void main(String[] args) throws Exception {
+
+        var conditions = new Conditions();
+        Path dir = null;
+        int port = 0;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--port": port = Integer.parseInt(value); break;
+                case "--latency": conditions.latency(Long.parseLong(value));
+                    break;
+                case "--jitter": conditions.jitter(Long.parseLong(value));
+                    break;
+                case "--bandwidth":
+                    conditions.bandwidth(Long.parseLong(value));
+                    break;
+                case "--errors":
+                    conditions.errorRate(Double.parseDouble(value));
+                    break;
+                case "--dir": dir = Paths.get(value); break;
+                default:
+                    throw new IllegalArgumentException("Unknown option "
+                            + args[i]);
+            }
+        }
+
+        var server = new StubServer(conditions.shiftDates(true), dir, port);
+        System.out.println("-Dradioinfo.api.baseUrl=" + server.baseUrl());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Network conditions simulated by the server. All are off by default.
+     */
+    static final class Conditions {
+
+        private long latencyMillis;
+        private long jitterMillis;
+        private long bytesPerSecond;
+        private double errorRate;
+        private boolean shiftDates;
+
+        /**
+         * @param millis fixed delay before each response
+         * @return these conditions
+         */
+        Conditions latency(long millis) {
+
+            latencyMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param millis largest random delay added to the latency, evenly
+         * distributed
+         * @return these conditions
+         */
+        Conditions jitter(long millis) {
+
+            jitterMillis = millis;
+            return this;
+        }
+
+        /**
+         * @param bytesPerSecond bandwidth of each response body, 0 for no
+         * limit
+         * @return these conditions
+         */
+        Conditions bandwidth(long bytesPerSecond) {
+
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * @param rate fraction of requests answered with 503
+         * @return these conditions
+         */
+        Conditions errorRate(double rate) {
+
+            errorRate = rate;
+            return this;
+        }
+
+        /**
+         * @param shift true to move schedules to the requested date, so
+         * the programs fall around now as they do live
+         * @return these conditions
+         */
+        Conditions shiftDates(boolean shift) {
+
+            shiftDates = shift;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+
+            return String.format("latency %d ms, jitter %d ms, bandwidth %s,"
+                            + " errors %.1f%%", latencyMillis, jitterMillis,
+                    bytesPerSecond > 0 ? bytesPerSecond / 1024 + " KiB/s"
+                            : "unlimited", errorRate * 100);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package Model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Compares the transports against a local {@link StubServer}. Reports bytes
+ * on the wire and mean request latency for repeated fetches of the channel
+ * listing and a schedule.
+ */
+public class TransportBenchmark {
+
+    private static final int ROUNDS = 500;
+
+    public static void main(String[] args) throws Exception {
+
+        try (StubServer server = new StubServer()) {
+
+            run("url", new UrlTransport(), server);
+            run("http", new HttpClientTransport(Duration.ofSeconds(5),
+                    Duration.ofSeconds(15)), server);
+        }
+    }
+
+    private static void run(String name, Transport transport,
+                            StubServer server) throws Exception {
+
+        XmlParser parser = new XmlParser(ParserEngine.STAX, transport,
+                server.baseUrl());
+
+        //warm up connections and the jit
+        for (int i = 0; i < ROUNDS; i++) {
+            parser.channelParser();
+            parser.channelEpisodes(132, LocalDate.now());
+        }
+
+        server.reset();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ROUNDS; i++) {
+            parser.channelParser();
+            parser.channelEpisodes(132, LocalDate.now());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long requests = server.requests();
+
+        System.out.printf("%-5s %,10d bytes/request %8.3f ms/request%n",
+                name, server.bytesSent() / requests,
+                elapsed / 1e6 / requests);
+    }
+}
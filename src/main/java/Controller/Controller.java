@@ -1,8 +1,10 @@
 package Controller;
 
+import Model.Metrics;
 import Model.Model;
 import Model.Program;
 import View.ChannelComboBox;
+import View.EdtWatchdog;
 import View.MainWindow;
 import View.TableData;
 
@@ -14,10 +16,9 @@ import java.awt.event.MouseEvent;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controller handles communication between model and views. The Controller is
@@ -28,26 +29,55 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Controller {
 
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    //from asking for the programs until they are shown
+    private static final Metrics.Timer PROGRAM_LOAD =
+            Metrics.getInstance().timer("program.load");
+    private static final Metrics.Counter PROGRAM_SUPERSEDED =
+            Metrics.getInstance().counter("program.superseded");
+
+    //from asking for the programs until the first of them are shown
+    private static final Metrics.Timer PROGRAM_FIRST_ROWS =
+            Metrics.getInstance().timer("program.firstRows");
+
+    //set to false to show the programs only once all have been loaded
+    private static final boolean PROGRESSIVE = Boolean.parseBoolean(
+            System.getProperty("radioinfo.table.progressive", "true"));
+
+    //set to true to show the metrics next to the refresh button
+    private static final String STATUS_LINE_PROPERTY =
+            "radioinfo.metrics.status";
+
     private final Model model;
     private volatile MainWindow view;
     private final ChannelComboBox comboBox;
-    private volatile ArrayList<Program> programs;
     private String currentChannel;
-    private Timer timer;
+    private final RefreshScheduler refresher;
     private String lastUpdated;
-    private AtomicBoolean isUpdating = new AtomicBoolean(false);
+    private final WorkerExecutor executor;
+    private final LatestRequest<ProgramRequest> programRequests;
+    private boolean listenersAdded = false;
+    private StatusTicker statusTicker;
+    //channel whose programs are in the table, used on the EDT
+    private String shownChannel;
 
     /**
      * Constructor
      * Initiates the GUI, executes the SwingWorker which retrieves channels and
-     * initiates a timer.
+     * initiates the refresh scheduler.
      */
     public Controller() {
         model = new Model();
         comboBox = new ChannelComboBox();
+        refresher = new RefreshScheduler(this::scheduledRefresh);
+        executor = WorkerExecutor.fromProperty();
+        programRequests = new LatestRequest<>(executor);
+        Metrics.registerMBean();
+        EdtWatchdog.install();
         initView();
-        new ChannelWorker().execute();
-        timer = new Timer();
+        executor.execute(new ChannelWorker());
     }
 
     /**
@@ -65,6 +95,10 @@ public class Controller {
             view.helpListener(actionEvent -> showHelpDialog());
             view.addComboBox(comboBox);
 
+            if (Boolean.getBoolean(STATUS_LINE_PROPERTY)) {
+                new Timer(1000, e -> view.setStatusLine(
+                        Metrics.getInstance().getSummary())).start();
+            }
         });
 
     }
@@ -74,7 +108,7 @@ public class Controller {
      */
     private void initListeners() {
         comboBox.comboBoxListener(this::showProgramData);
-        view.refreshListener(actionEvent -> scheduledUpdate());
+        view.refreshListener(actionEvent -> scheduledUpdate(true));
 
     }
 
@@ -106,42 +140,28 @@ public class Controller {
         if (itemEvent.getStateChange() == ItemEvent.SELECTED) {
 
             setCurrentChannel(itemEvent.getItem().toString());
-            scheduledUpdate();
+            scheduledUpdate(false);
 
         }
     }
 
     /**
      * This method is responsible for handling an event when an item in the
-     * tableau is clicked. Gets both the id and start time from the tableau
-     * and checks for those values in the program list. When the program is
-     * found it fetches the image and description for that program send it to
-     * the view.
+     * tableau is clicked. Each row is bound to its program, so the program
+     * is read straight from the table model. The image and description for
+     * that program are then sent to the view.
      */
     private void addProgramListener() {
 
         view.addTableListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
-                var rows = view.getTableModel().getRowCount();
-
-                if (rows > 0) {
-                    int rowId = view.getTableModel().getRowId(
-                            view.getTable().getSelectedRow());
+                int row = view.getTable().getSelectedRow();
 
-                    String startTime = view.getTable().getModel().getValueAt(
-                            view.getTable().getSelectedRow(), 1).toString();
+                if (row >= 0 && row < view.getTableModel().getRowCount()) {
 
-                    for (Program p : programs) {
-                        LocalDateTime ldt = p.getStartTime();
-                        String formatTime = timeFormatter(ldt);
-
-                        if (p.getId() == rowId && formatTime.equals(startTime)){
-
-                            programImgRetriever(p);
-
-                        }
-                    }
+                    programImgRetriever(
+                            view.getTableModel().getProgramAt(row));
                 }
             }
         });
@@ -158,7 +178,8 @@ public class Controller {
             @Override
             protected ImageIcon doInBackground() {
 
-                return p.getImage();
+                return p.getImage(MainWindow.PROGRAM_IMAGE_SIZE,
+                        MainWindow.PROGRAM_IMAGE_SIZE);
             }
 
             @Override
@@ -167,65 +188,101 @@ public class Controller {
                 try {
                     var tmp = get();
                     view.setOptionDialog(p.getDescription(), tmp);
-                    isUpdating.set(false);
 
                 } catch (InterruptedException | ExecutionException e) {
                     e.printStackTrace();
                 }
             }
         };
-        sw.execute();
+        executor.execute(sw);
 
     }
 
     /**
      * Either called when refresh button is clicked or when channel is
-     * chosen from combo box. Executes the program worker, cancels the current
-     * timer and schedules an update.
+     * chosen from combo box. Executes the program worker, which plans the
+     * next scheduled refresh once the programs are loaded. Called on the
+     * Event Dispatch Thread.
+     *
+     * @param bypassCache true to fetch programs from the API even if they
+     *                    are cached, used by the refresh button
      */
-    public void scheduledUpdate() {
-
-        if (isUpdating.compareAndSet(false, true)) {
+    public void scheduledUpdate(boolean bypassCache) {
 
-            if (getCurrentChannel() != null) {
+        if (getCurrentChannel() != null) {
 
-                updateData();
-            }
+            updateData(bypassCache);
         }
+    }
+
+    /**
+     * Run by the refresh scheduler at the planned time, updates the
+     * programs of the current channel.
+     */
+    private void scheduledRefresh() {
 
-        timer.cancel();
-        timer.purge();
+        SwingUtilities.invokeLater(() -> scheduledUpdate(false));
+    }
 
-        timer = new Timer();
-        timer.scheduleAtFixedRate(new UpdateTask(), 3600000,
-                3600000);
+    /**
+     * @return the ticker keeping the status column current, created the
+     * first time it is needed
+     */
+    private StatusTicker statusTicker() {
 
+        if (statusTicker == null) {
+            statusTicker = new StatusTicker(view.getTableModel());
+        }
+        return statusTicker;
     }
 
     /**
-     * Executes worker for updating program tableau
+     * Executes worker for updating program tableau. A worker still loading
+     * another request is cancelled, and the same request is not started
+     * twice. Called on the Event Dispatch Thread.
+     *
+     * @param bypassCache true to skip the schedule cache
      */
-    public void updateData() {
+    public void updateData(boolean bypassCache) {
 
-        ProgramWorker pw = new ProgramWorker();
-        pw.execute();
+        programRequests.submit(new ProgramRequest(getCurrentChannel(),
+                bypassCache), ProgramWorker::new);
 
     }
 
     /**
      * Nested class, retrieves all radio channels on background thread, once
-     * done, fills a combo box with channel names
+     * done, fills a combo box with channel names. Channels saved by the
+     * previous run are published first, so they can be chosen before the
+     * API has answered.
      */
-    class ChannelWorker extends SwingWorker<ArrayList<String>, String> {
+    class ChannelWorker extends SwingWorker<List<String>, String> {
 
         @Override
-        protected ArrayList<String> doInBackground() {
+        protected List<String> doInBackground() {
+
+            if (model.restoreSchedules()) {
+
+                for (String name : model.getChannelNames()) {
+
+                    publish(name);
+                }
+            }
 
             model.loadChannels();
+            model.warmChannelImages(MainWindow.CHANNEL_IMAGE_SIZE);
+            model.prefetchSchedules();
             return model.getChannelNames();
 
         }
 
+        @Override
+        protected void process(List<String> names) {
+
+            comboBox.addChannels(names);
+            addListeners();
+        }
+
         @Override
         protected void done() {
 
@@ -233,70 +290,161 @@ public class Controller {
             try {
                 var tmp = get();
                 comboBox.addChannels(tmp);
-                initListeners();
-                addProgramListener();
+                addListeners();
 
             } catch (InterruptedException | ExecutionException e) {
                 e.printStackTrace();
             }
         }
+
+        /**
+         * Adds the listeners the first time channels are available.
+         */
+        private void addListeners() {
+
+            if (!listenersAdded) {
+
+                listenersAdded = true;
+                initListeners();
+                addProgramListener();
+            }
+        }
+    }
+
+    /**
+     * What a program worker loads, compared to find identical requests.
+     */
+    private static final class ProgramRequest {
+
+        private final String channel;
+        private final boolean bypassCache;
+
+        ProgramRequest(String channel, boolean bypassCache) {
+            this.channel = channel;
+            this.bypassCache = bypassCache;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProgramRequest)) {
+                return false;
+            }
+            ProgramRequest other = (ProgramRequest) o;
+            return bypassCache == other.bypassCache
+                    && channel.equals(other.channel);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(channel, bypassCache);
+        }
     }
 
     /**
      * Nested class, fills table with programs based on the currently selected
-     * channel. Retrieves programs
+     * channel. Retrieves programs. Programs of days that have to be fetched
+     * are published in small batches while they are decoded and shown as
+     * they arrive, the complete result replaces them when done. Results are
+     * only shown if no newer request was made while loading.
      */
-    class ProgramWorker extends SwingWorker<ArrayList<Program>, Void> {
+    class ProgramWorker extends SwingWorker<ArrayList<Program>, Program> {
+
+        private final ProgramRequest request;
+        private final long started = PROGRAM_LOAD.start();
+        private volatile ImageIcon channelImage;
+        private volatile LocalDateTime nextRefresh;
+
+        //rows published so far, sorted by start time, used on the EDT
+        private final ArrayList<TableData> streamed = new ArrayList<>();
+        private Program lastStreamed;
+        private boolean firstRowsShown;
+
+        //set on the EDT once the full result is shown, batches delivered
+        //by the Swing timer after that are older than the table
+        private boolean finished;
+
+        ProgramWorker(ProgramRequest request) {
+
+            this.request = request;
+        }
 
         @Override
         protected ArrayList<Program> doInBackground() {
 
-            model.loadChannelImage(getCurrentChannel());
-            return model.getPrograms(getCurrentChannel());
-        }
+            channelImage = model.loadChannelImage(request.channel,
+                    MainWindow.CHANNEL_IMAGE_SIZE);
+            var loaded = model.getPrograms(request.channel,
+                    request.bypassCache, PROGRESSIVE
+                            ? batch -> publish(batch.toArray(new Program[0]))
+                            : null);
+            nextRefresh = model.nextRefresh(request.channel);
 
+            return loaded;
+        }
 
         @Override
-        protected void done() {
-            //shows message dialog if any error occurred
-            model.displayErrorMsg(view);
+        protected void process(List<Program> chunk) {
 
-            var tableauItems = new ArrayList<TableData>();
+            if (finished || !isShown()) {
+                return;
+            }
 
-            try {
-                programs = get();
+            int before = streamed.size();
+            var now = LocalDateTime.now();
 
-                LocalDateTime ldt = LocalDateTime.now();
-                String status = "";
+            //a program spanning two days is sent with both, and the rows
+            //must stay sorted, so only programs after the last one are kept
+            for (Program p : chunk) {
 
-                for (Program p : programs) {
+                if (lastStreamed == null || startsAfter(p, lastStreamed)) {
+                    streamed.addAll(tableRows(List.of(p), now));
+                    lastStreamed = p;
+                }
+            }
 
-                    var id = p.getId();
-                    var title = p.getTitle();
-                    var startTime = p.getStartTime();
-                    var formatTime1 = timeFormatter(startTime);
-                    var endTime = p.getEndTime();
-                    var formatTime2 = timeFormatter(endTime);
+            if (streamed.size() == before) {
+                return;
+            }
 
-                    if (startTime.isBefore(ldt) && endTime.isAfter(ldt)) {
+            if (request.channel.equals(shownChannel)) {
+                view.updateLeadingRows(streamed);
+            } else {
+                //the ticker's next boundary belongs to the rows replaced
+                //here, it restarts once all of the programs are shown
+                statusTicker().stop();
+                view.updateTable(streamed);
+                view.setChannelImage(channelImage);
+                shownChannel = request.channel;
+            }
+            firstRowsShown();
+        }
 
-                        status = "Running";
-                    }
-                    if (endTime.isBefore(ldt)) {
+        @Override
+        protected void done() {
 
-                        status = "Finished";
-                    }
-                    if (startTime.isAfter(ldt)) {
+            finished = true;
 
-                        status = "Upcoming";
-                    }
+            if (!isShown()) {
+                PROGRAM_SUPERSEDED.increment();
+                return;
+            }
 
-                    tableauItems.add(new TableData(id, title, formatTime1,
-                            formatTime2, status));
+            //shows message dialog if any error occurred
+            model.displayErrorMsg(view);
 
-                }
-                view.updateTable(tableauItems);
-                view.setChannelImage(model.getChannelImg());
+            try {
+                ArrayList<Program> programs = get();
+
+                view.updateTable(tableRows(programs, LocalDateTime.now()));
+                view.setChannelImage(channelImage);
+                shownChannel = request.channel;
+                firstRowsShown();
+                statusTicker().restart();
+                PROGRAM_LOAD.stop(started);
 
             } catch (InterruptedException | ExecutionException e) {
                 e.printStackTrace();
@@ -304,37 +452,73 @@ public class Controller {
 
             lastUpdate(LocalDateTime.now());
             view.setLastUpdated(lastUpdated);
-            isUpdating.set(false);
+            refresher.scheduleAt(nextRefresh != null ? nextRefresh
+                    : LocalDateTime.now().plusHours(1));
+
+        }
+
+        /**
+         * @return true if this worker is for the latest request and its
+         * channel is still chosen
+         */
+        private boolean isShown() {
+
+            return programRequests.isCurrent(this)
+                    && request.channel.equals(getCurrentChannel());
+        }
 
+        private void firstRowsShown() {
+
+            if (!firstRowsShown) {
+                firstRowsShown = true;
+                PROGRAM_FIRST_ROWS.stop(started);
+            }
         }
+    }
+
+    /**
+     * @return true if the first program comes after the second in the
+     * table, ordered by start time and then id
+     */
+    private static boolean startsAfter(Program p, Program other) {
 
+        int order = p.getStartTime().compareTo(other.getStartTime());
+        return order != 0 ? order > 0 : p.getId() > other.getId();
     }
 
     /**
-     * Responsible for executing a scheduled update. will run 1 hour after
-     * a new channel has been selected
+     * Builds the table rows for the programs of a channel.
+     * @param programs the programs, sorted by start time
+     * @param now the current time, used for the status column
+     * @return one row per program
      */
-    class UpdateTask extends TimerTask {
+    static ArrayList<TableData> tableRows(List<Program> programs,
+                                          LocalDateTime now) {
 
-        @Override
-        public void run() {
+        var tableauItems = new ArrayList<TableData>(programs.size());
+
+        for (Program p : programs) {
+
+            var startTime = p.getStartTime();
+            var formatTime1 = timeFormatter(startTime);
+            var endTime = p.getEndTime();
+            var formatTime2 = timeFormatter(endTime);
+            var status = TableData.statusAt(startTime, endTime, now);
+
+            tableauItems.add(new TableData(p, formatTime1,
+                    formatTime2, status));
 
-            if (isUpdating.compareAndSet(false, true)) {
-                updateData();
-            }
         }
+        return tableauItems;
     }
 
     /**
      * @param ldt local date time
      * @return formatted String of pattern yyyy-MM-dd HH:mm:ss
      */
-    private String timeFormatter(LocalDateTime ldt) {
-
-        DateTimeFormatter formatter =
-                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static String timeFormatter(LocalDateTime ldt) {
 
-        return ldt.format(formatter);
+        return ldt.format(TIME_FORMAT);
     }
 
     /**
@@ -0,0 +1,66 @@
+package Controller;
+
+import javax.swing.SwingWorker;
+import java.util.function.Function;
+
+/**
+ * Single-flight, latest-wins handling of one kind of request. A new
+ * request cancels the worker still running for an older one and
+ * interrupts its thread, so blocking reads stop. A request equal to the
+ * one running is dropped and the running worker is kept. Workers check
+ * {@link #isCurrent} before showing their result, so a superseded worker
+ * that finishes late never overwrites a newer one. Used on the Event
+ * Dispatch Thread only.
+ *
+ * @param <K> what a request asks for, compared with equals
+ */
+class LatestRequest<K> {
+
+    private final WorkerExecutor executor;
+    private K key;
+    private SwingWorker<?, ?> worker;
+
+    /**
+     * Constructor
+     * @param executor runs the workers
+     */
+    LatestRequest(WorkerExecutor executor) {
+
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a worker for the request unless the same request is running.
+     * @param request what to load
+     * @param factory creates the worker for the request
+     * @return true if a worker was started
+     */
+    boolean submit(K request, Function<K, SwingWorker<?, ?>> factory) {
+
+        boolean running = worker != null && !worker.isDone();
+
+        if (running && request.equals(key)) {
+            return false;
+        }
+
+        if (running) {
+            worker.cancel(true);
+        }
+
+        key = request;
+        worker = factory.apply(request);
+        executor.execute(worker);
+
+        return true;
+    }
+
+    /**
+     * @param candidate a worker started through this object
+     * @return true if the worker belongs to the latest request and was not
+     * cancelled
+     */
+    boolean isCurrent(SwingWorker<?, ?> candidate) {
+
+        return candidate == worker && !candidate.isCancelled();
+    }
+}
@@ -0,0 +1,70 @@
+package Controller;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the scheduled program refresh. One long lived daemon thread waits
+ * for the next planned refresh. Planning a new refresh cancels the one
+ * waiting, cancelled tasks are removed from the queue right away and no
+ * thread is created per plan.
+ */
+class RefreshScheduler {
+
+    //never refresh in a tight loop, even if the plan is already due
+    private static final Duration MIN_DELAY = Duration.ofSeconds(5);
+
+    //refresh slightly after the planned time so the change is visible
+    private static final Duration MARGIN = Duration.ofSeconds(1);
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final Runnable refresh;
+    private ScheduledFuture<?> next;
+
+    /**
+     * Constructor
+     * @param refresh run at each planned time, on the scheduler thread
+     */
+    RefreshScheduler(Runnable refresh) {
+
+        this.refresh = refresh;
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "program-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Plans the next refresh, replacing the one planned before.
+     * @param time when to refresh
+     */
+    synchronized void scheduleAt(LocalDateTime time) {
+
+        Duration delay = Duration.between(LocalDateTime.now(), time)
+                .plus(MARGIN);
+
+        if (delay.compareTo(MIN_DELAY) < 0) {
+            delay = MIN_DELAY;
+        }
+
+        cancel();
+        next = executor.schedule(refresh, delay.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the planned refresh, if any.
+     */
+    synchronized void cancel() {
+
+        if (next != null) {
+            next.cancel(false);
+            next = null;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package Controller;
+
+import View.ProgramTable;
+
+import javax.swing.Timer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Keeps the status column of the program table current. A single shot
+ * Swing timer fires at the next time a program starts or ends, recomputes
+ * the statuses from the start and end times already in the table and then
+ * waits for the following boundary. No data is fetched.
+ */
+class StatusTicker {
+
+    //fire slightly after the boundary so the new status is already valid
+    private static final int MARGIN_MILLIS = 50;
+
+    private final ProgramTable table;
+    private final Timer timer;
+
+    /**
+     * Constructor
+     * @param table table model whose statuses are kept current
+     */
+    StatusTicker(ProgramTable table) {
+
+        this.table = table;
+        timer = new Timer(0, actionEvent -> tick());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Recomputes the statuses now and schedules the next update. Called on
+     * the Event Dispatch Thread whenever the table content changed.
+     */
+    void restart() {
+
+        tick();
+    }
+
+    /**
+     * Stops the ticker until the next {@link #restart()}, such as while the
+     * table is being filled with the programs of another channel.
+     */
+    void stop() {
+
+        timer.stop();
+    }
+
+    private void tick() {
+
+        LocalDateTime now = LocalDateTime.now();
+        table.refreshStatuses(now);
+
+        LocalDateTime next = table.nextStatusChange(now);
+        timer.stop();
+
+        if (next != null) {
+
+            long delay = Duration.between(now, next).toMillis()
+                    + MARGIN_MILLIS;
+            timer.setInitialDelay((int) Math.min(delay, Integer.MAX_VALUE));
+            timer.start();
+        }
+    }
+}
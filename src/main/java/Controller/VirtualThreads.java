@@ -0,0 +1,58 @@
+package Controller;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, which need JDK 21. The application is built
+ * for Java 11, so this version looks the factory method up by reflection.
+ * When built on JDK 21 the jar also holds a version of this class under
+ * {@code META-INF/versions/21} that calls the method directly.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JDK supports virtual threads
+     */
+    static boolean isSupported() {
+
+        return factory() != null;
+    }
+
+    /**
+     * @return an executor starting a new virtual thread for each task, or
+     * null if the running JDK has no virtual threads
+     */
+    static ExecutorService newExecutor() {
+
+        Method factory = factory();
+
+        if (factory == null) {
+            return null;
+        }
+
+        try {
+            return (ExecutorService) factory.invoke(null);
+
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Error creating virtual thread executor "
+                    + e.toString());
+            return null;
+        }
+    }
+
+    private static Method factory() {
+
+        try {
+            return Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package Controller;
+
+import javax.swing.SwingWorker;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the background part of the controller's workers. The mode is read
+ * from the system property {@code radioinfo.executor}:
+ * <ul>
+ *     <li>{@code swing}, the default, uses the shared pool of
+ *     {@link SwingWorker#execute()}, at most ten threads</li>
+ *     <li>{@code virtual} starts a virtual thread per worker, needs JDK 21
+ *     and falls back to {@code swing} on older versions</li>
+ *     <li>{@code platform} starts a daemon platform thread per worker, from
+ *     a cached pool</li>
+ * </ul>
+ * Cancelling a worker interrupts its thread in every mode, and
+ * {@code done()} still runs on the Event Dispatch Thread.
+ */
+interface WorkerExecutor {
+
+    String PROPERTY = "radioinfo.executor";
+
+    /**
+     * Starts the background part of a worker.
+     * @param worker the worker, not started before
+     */
+    void execute(SwingWorker<?, ?> worker);
+
+    /**
+     * @return the executor chosen by the system property
+     */
+    static WorkerExecutor fromProperty() {
+
+        String mode = System.getProperty(PROPERTY, "swing").trim()
+                .toLowerCase();
+
+        switch (mode) {
+
+            case "virtual":
+                ExecutorService virtual = VirtualThreads.newExecutor();
+
+                if (virtual != null) {
+                    return virtual::execute;
+                }
+                System.err.println("Virtual threads need JDK 21, using the "
+                        + "swing executor");
+                return SwingWorker::execute;
+
+            case "platform":
+                AtomicInteger count = new AtomicInteger();
+                ExecutorService platform = Executors.newCachedThreadPool(
+                        runnable -> {
+                            Thread thread = new Thread(runnable,
+                                    "worker-" + count.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                return platform::execute;
+
+            case "swing":
+                return SwingWorker::execute;
+
+            default:
+                System.err.println("Unknown executor " + mode
+                        + ", using swing");
+                return SwingWorker::execute;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package Export;
+
+import Model.Model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Command line mode exporting all schedules without opening a window.
+ * <pre>
+ * java -jar RadioInfo.jar --export csv|jsonl|ics [--out FILE]
+ *      [--from YYYY-MM-DD] [--days N] [--parallelism N]
+ * </pre>
+ * The schedules from the start of the first day to the end of the last
+ * are written to the file, or to standard output when no file is given.
+ * The report with counts and timings goes to standard error.
+ */
+public class ExportCommand {
+
+    static final String USAGE = "usage: --export csv|jsonl|ics [--out FILE]"
+            + " [--from YYYY-MM-DD] [--days N] [--parallelism N]";
+
+    private ExportFormat format;
+    private Path out;
+    private LocalDate from = LocalDate.now();
+    private int days = 1;
+    private int parallelism = Integer.getInteger(
+            "radioinfo.prefetch.parallelism", 4);
+
+    /**
+     * @param args command line arguments
+     * @return true if the arguments ask for an export
+     */
+    public static boolean isExport(String[] args) {
+
+        return args.length > 0 && args[0].equals("--export");
+    }
+
+    /**
+     * Runs the export.
+     * @param args command line arguments, starting with --export
+     * @return exit status, 0 if every channel was exported
+     */
+    public static int run(String[] args) {
+
+        ExportCommand command = new ExportCommand();
+
+        try {
+            command.parse(args);
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        return command.export();
+    }
+
+    private void parse(String[] args) {
+
+        for (int i = 0; i < args.length; i++) {
+
+            String option = args[i];
+
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for "
+                        + option);
+            }
+            String value = args[++i];
+
+            switch (option) {
+                case "--export":
+                    format = ExportFormat.parse(value);
+                    break;
+                case "--out":
+                    out = Paths.get(value);
+                    break;
+                case "--from":
+                    from = LocalDate.parse(value);
+                    break;
+                case "--days":
+                    days = positive(option, value);
+                    break;
+                case "--parallelism":
+                    parallelism = positive(option, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option "
+                            + option);
+            }
+        }
+    }
+
+    private int export() {
+
+        LocalDateTime start = from.atStartOfDay();
+        var exporter = new ScheduleExporter(new Model(), format, start,
+                start.plusDays(days), parallelism);
+
+        try (Writer writer = open()) {
+
+            ScheduleExporter.Report report = exporter.export(writer);
+            System.err.println(report);
+
+            return report.getFailed() == 0 ? 0 : 1;
+
+        } catch (IOException e) {
+            System.err.println("Error exporting schedules " + e.toString());
+            return 1;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    /**
+     * Opens the output. Standard output is wrapped so closing the writer
+     * only flushes it.
+     */
+    private Writer open() throws IOException {
+
+        if (out != null) {
+            return Files.newBufferedWriter(out, StandardCharsets.UTF_8);
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(System.out,
+                StandardCharsets.UTF_8)) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    private static int positive(String option, String value) {
+
+        try {
+            int n = Integer.parseInt(value);
+
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive "
+                + "number");
+    }
+}
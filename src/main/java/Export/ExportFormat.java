@@ -0,0 +1,238 @@
+package Export;
+
+import Model.Program;
+import Server.Json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats programs for the export, one program at a time so nothing has to
+ * be held until the end. Times are written as the local times shown in the
+ * window.
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma separated values with a header line, quoted as in RFC 4180.
+     */
+    CSV("csv") {
+        @Override
+        void begin(Writer out) throws IOException {
+
+            out.write("channel,id,title,start,end,description\r\n");
+        }
+
+        @Override
+        void write(Writer out, int channelId, String channel, Program p)
+                throws IOException {
+
+            out.write(csv(channel));
+            out.write(',');
+            out.write(Integer.toString(p.getId()));
+            out.write(',');
+            out.write(csv(p.getTitle()));
+            out.write(',');
+            out.write(time(p.getStartTime(), ISO));
+            out.write(',');
+            out.write(time(p.getEndTime(), ISO));
+            out.write(',');
+            out.write(csv(p.getDescription()));
+            out.write("\r\n");
+        }
+    },
+
+    /**
+     * One JSON object per line.
+     */
+    JSONL("jsonl") {
+        @Override
+        void write(Writer out, int channelId, String channel, Program p)
+                throws IOException {
+
+            out.write("{\"channel\":");
+            out.write(json(channel));
+            out.write(",\"id\":");
+            out.write(Integer.toString(p.getId()));
+            out.write(",\"title\":");
+            out.write(json(p.getTitle()));
+            out.write(",\"start\":");
+            out.write(json(time(p.getStartTime(), ISO)));
+            out.write(",\"end\":");
+            out.write(json(time(p.getEndTime(), ISO)));
+            out.write(",\"description\":");
+            out.write(json(p.getDescription()));
+            out.write("}\n");
+        }
+    },
+
+    /**
+     * An iCalendar file with one event per program, in floating local time.
+     */
+    ICAL("ics") {
+        @Override
+        void begin(Writer out) throws IOException {
+
+            out.write("BEGIN:VCALENDAR\r\n");
+            out.write("VERSION:2.0\r\n");
+            out.write("PRODID:-//RadioInfo//Schedule export//EN\r\n");
+        }
+
+        @Override
+        void write(Writer out, int channelId, String channel, Program p)
+                throws IOException {
+
+            String start = time(p.getStartTime(), ICAL_TIME);
+
+            out.write("BEGIN:VEVENT\r\n");
+            //a program sent on several channels is one event per channel
+            line(out, "UID:" + channelId + "-" + p.getId() + "-" + start
+                    + "@radioinfo");
+            line(out, "DTSTAMP:" + LocalDateTime.now(ZoneOffset.UTC)
+                    .format(ICAL_TIME) + "Z");
+            line(out, "DTSTART:" + start);
+            if (p.getEndTime() != null) {
+                line(out, "DTEND:" + time(p.getEndTime(), ICAL_TIME));
+            }
+            line(out, "SUMMARY:" + text(p.getTitle()));
+            line(out, "LOCATION:" + text(channel));
+            if (p.getDescription() != null) {
+                line(out, "DESCRIPTION:" + text(p.getDescription()));
+            }
+            out.write("END:VEVENT\r\n");
+        }
+
+        @Override
+        void end(Writer out) throws IOException {
+
+            out.write("END:VCALENDAR\r\n");
+        }
+    };
+
+    private static final DateTimeFormatter ISO =
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final DateTimeFormatter ICAL_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    //content lines longer than this are folded, see RFC 5545 3.1
+    private static final int ICAL_LINE_LENGTH = 75;
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+
+        this.extension = extension;
+    }
+
+    /**
+     * Writes what comes before the first program.
+     * @param out the output
+     * @throws IOException if writing failed
+     */
+    void begin(Writer out) throws IOException {
+    }
+
+    /**
+     * Writes one program.
+     * @param out the output
+     * @param channelId id of the channel
+     * @param channel name of the channel
+     * @param p the program
+     * @throws IOException if writing failed
+     */
+    abstract void write(Writer out, int channelId, String channel, Program p)
+            throws IOException;
+
+    /**
+     * Writes what comes after the last program.
+     * @param out the output
+     * @throws IOException if writing failed
+     */
+    void end(Writer out) throws IOException {
+    }
+
+    /**
+     * @param name a format name or file extension, in any case
+     * @return the format
+     * @throws IllegalArgumentException if there is no such format
+     */
+    public static ExportFormat parse(String name) {
+
+        for (ExportFormat format : values()) {
+
+            if (format.name().equalsIgnoreCase(name)
+                    || format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format " + name
+                + ", use csv, jsonl or ics");
+    }
+
+    private static String time(LocalDateTime time,
+                               DateTimeFormatter formatter) {
+
+        return time == null ? "" : time.format(formatter);
+    }
+
+    private static String csv(String value) {
+
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+
+        return value == null ? "null" : Json.quote(value);
+    }
+
+    /**
+     * Escapes an iCalendar text value.
+     */
+    private static String text(String value) {
+
+        return value == null ? "" : value.replace("\\", "\\\\")
+                .replace(";", "\\;").replace(",", "\\,")
+                .replace("\r\n", "\\n").replace("\n", "\\n")
+                .replace("\r", "");
+    }
+
+    /**
+     * Writes an iCalendar content line, folded so no line is longer than
+     * the limit in UTF-8 bytes. Continuation lines start with a space.
+     */
+    private static void line(Writer out, String line) throws IOException {
+
+        int start = 0;
+        int bytes = 0;
+        int limit = ICAL_LINE_LENGTH;
+
+        for (int i = 0; i < line.length(); ) {
+
+            int c = line.codePointAt(i);
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2 : c < 0x10000 ? 3 : 4;
+
+            if (bytes + size > limit) {
+
+                out.write(line, start, i - start);
+                out.write("\r\n ");
+                start = i;
+                bytes = 0;
+                limit = ICAL_LINE_LENGTH - 1;
+            }
+            bytes += size;
+            i += Character.charCount(c);
+        }
+        out.write(line, start, line.length() - start);
+        out.write("\r\n");
+    }
+}
@@ -0,0 +1,257 @@
+package Export;
+
+import Model.Model;
+import Model.Program;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports the schedules of every channel without a window. The channels
+ * are fetched in parallel by a bounded pool, and each channel is written as
+ * soon as it has been fetched. A new channel is only submitted when a
+ * fetched one has been written, so the exporter itself holds at most one
+ * schedule per worker. The fetched days also go through the model's
+ * schedule cache, which has limits of its own. Channels come out in the
+ * order they finish. A channel that fails is logged and listed in the
+ * report, the others are still exported.
+ */
+public class ScheduleExporter {
+
+    private final Model model;
+    private final ExportFormat format;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final int parallelism;
+
+    /**
+     * Constructor
+     * @param model model the schedules are fetched through
+     * @param format output format
+     * @param from start of the exported window
+     * @param to end of the exported window
+     * @param parallelism number of channels fetched at the same time
+     */
+    public ScheduleExporter(Model model, ExportFormat format,
+                            LocalDateTime from, LocalDateTime to,
+                            int parallelism) {
+
+        this.model = model;
+        this.format = format;
+        this.from = from;
+        this.to = to;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Loads the channels and writes the schedule of each of them.
+     * @param out the output, flushed but not closed
+     * @return counts and timings of the export
+     * @throws IOException if no channels could be loaded or writing failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Report export(Writer out) throws IOException, InterruptedException {
+
+        long start = System.nanoTime();
+
+        model.loadChannels();
+        List<Integer> channels = model.getChannelIds();
+
+        if (channels.isEmpty()) {
+            throw new IOException("No channels could be loaded");
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "export-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        var results = new ExecutorCompletionService<Fetched>(executor);
+
+        try {
+            int submitted = 0;
+
+            while (submitted < Math.min(parallelism, channels.size())) {
+                submit(results, channels.get(submitted++));
+            }
+
+            format.begin(out);
+
+            int programs = 0;
+            var failed = new ArrayList<String>();
+            long slowestNanos = 0;
+            String slowest = null;
+
+            for (int i = 0; i < channels.size(); i++) {
+
+                Fetched fetched;
+
+                try {
+                    fetched = results.take().get();
+
+                } catch (ExecutionException e) {
+                    //failures are returned by the task, this is a bug
+                    throw new IllegalStateException(e.getCause());
+                }
+
+                if (fetched.error != null) {
+                    String channel = fetched.channel + " ("
+                            + fetched.channelId + ")";
+                    System.err.println("Error exporting channel " + channel
+                            + " " + fetched.error.toString());
+                    failed.add(channel);
+                }
+                else {
+
+                    for (Program p : fetched.programs) {
+                        format.write(out, fetched.channelId,
+                                fetched.channel, p);
+                    }
+                    programs += fetched.programs.size();
+
+                    if (fetched.nanos > slowestNanos) {
+                        slowestNanos = fetched.nanos;
+                        slowest = fetched.channel;
+                    }
+                }
+
+                //the next channel once this one is no longer held
+                if (submitted < channels.size()) {
+                    submit(results, channels.get(submitted++));
+                }
+            }
+
+            format.end(out);
+            out.flush();
+
+            return new Report(channels.size() - failed.size(), failed,
+                    programs, System.nanoTime() - start, slowest,
+                    slowestNanos);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Fetches the schedule of a channel in the pool. A failure is returned
+     * with the channel it belongs to instead of thrown.
+     */
+    private void submit(CompletionService<Fetched> results, int id) {
+
+        results.submit(() -> {
+            long fetchStart = System.nanoTime();
+            String channel = model.getChannelName(id);
+
+            try {
+                var programs = model.fetchPrograms(id, from, to);
+                return new Fetched(id, channel, programs,
+                        System.nanoTime() - fetchStart, null);
+
+            } catch (Exception e) {
+                return new Fetched(id, channel, List.of(),
+                        System.nanoTime() - fetchStart, e);
+            }
+        });
+    }
+
+    /**
+     * One fetched channel.
+     */
+    private static final class Fetched {
+
+        private final int channelId;
+        private final String channel;
+        private final List<Program> programs;
+        private final long nanos;
+        private final Exception error;
+
+        Fetched(int channelId, String channel, List<Program> programs,
+                long nanos, Exception error) {
+            this.channelId = channelId;
+            this.channel = channel;
+            this.programs = programs;
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Counts and timings of an export.
+     */
+    public static final class Report {
+
+        private final int channels;
+        private final List<String> failed;
+        private final int programs;
+        private final long wallNanos;
+        private final String slowestChannel;
+        private final long slowestNanos;
+
+        Report(int channels, List<String> failed, int programs,
+               long wallNanos, String slowestChannel, long slowestNanos) {
+            this.channels = channels;
+            this.failed = Collections.unmodifiableList(failed);
+            this.programs = programs;
+            this.wallNanos = wallNanos;
+            this.slowestChannel = slowestChannel;
+            this.slowestNanos = slowestNanos;
+        }
+
+        public int getChannels() {
+            return channels;
+        }
+
+        public int getFailed() {
+            return failed.size();
+        }
+
+        /**
+         * @return the channels that could not be exported, as name and id
+         */
+        public List<String> getFailedChannels() {
+            return failed;
+        }
+
+        public int getPrograms() {
+            return programs;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        @Override
+        public String toString() {
+
+            double seconds = wallNanos / 1e9;
+            var text = new StringBuilder(String.format("exported %d programs "
+                            + "from %d channels (%d failed) in %.2f s, "
+                            + "%.0f programs/s, %.1f channels/s",
+                    programs, channels, failed.size(), seconds,
+                    programs / seconds, channels / seconds));
+
+            if (slowestChannel != null) {
+                text.append(String.format(", slowest channel %s %.0f ms",
+                        slowestChannel, slowestNanos / 1e6));
+            }
+            if (!failed.isEmpty()) {
+                text.append(", failed: ").append(String.join(", ", failed));
+            }
+            return text.toString();
+        }
+    }
+}
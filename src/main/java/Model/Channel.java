@@ -1,10 +1,8 @@
 package Model;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.URL;
 
 /**
  * This class holds all information about a channel
@@ -47,28 +45,48 @@ class Channel {
     }
 
     /**
-     * Gets the image from an URL
+     *
+     * @return url of the channel image, may be null
+     */
+    String getImageUrl() {
+        return imageUrl;
+    }
+
+    /**
+     * Gets the image from an URL, through the shared image cache
      * @return ImageIcon holding the image for a channel
      */
     public ImageIcon getImage() {
 
+        return getImage(0, 0);
+    }
+
+    /**
+     * Gets the image from an URL, decoded at the given size. Should be
+     * called off the Event Dispatch Thread.
+     * @param width width in pixels, 0 for the original size
+     * @param height height in pixels, 0 for the original size
+     * @return ImageIcon holding the image for a channel
+     */
+    public ImageIcon getImage(int width, int height) {
+
         ImageIcon imageIcon = null;
 
         try {
             if(imageUrl != null) {
 
-                URL url = new URL(imageUrl);
-                BufferedImage image = ImageIO.read(url);
-                imageIcon = new ImageIcon(image);
+                BufferedImage image = ImageCache.getInstance().get(imageUrl,
+                        width, height);
+                if (image != null) {
+                    imageIcon = new ImageIcon(image);
+                }
 
             }
 
-
         } catch (IOException e) {
             e.printStackTrace();
         }
 
         return imageIcon;
     }
-
 }
@@ -0,0 +1,81 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable set of channels, indexed by name and by id. A new registry is
+ * built every time the channels are loaded and then published in one step,
+ * so readers never see a half updated set and never have to lock.
+ */
+final class ChannelRegistry {
+
+    static final ChannelRegistry EMPTY = new ChannelRegistry(List.of());
+
+    private final List<Channel> channels;
+    private final List<String> names;
+    private final Map<String, Channel> byName;
+    private final Map<Integer, Channel> byId;
+
+    /**
+     * Constructor. If several channels share a name or id, the first one is
+     * used for lookups.
+     * @param channels the channels, in the order they are shown
+     */
+    ChannelRegistry(List<Channel> channels) {
+
+        var names = new ArrayList<String>(channels.size());
+        var byName = new HashMap<String, Channel>();
+        var byId = new HashMap<Integer, Channel>();
+
+        for (Channel c : channels) {
+
+            names.add(c.getName());
+            byName.putIfAbsent(c.getName(), c);
+            byId.putIfAbsent(c.getId(), c);
+        }
+
+        this.channels = Collections.unmodifiableList(
+                new ArrayList<>(channels));
+        this.names = Collections.unmodifiableList(names);
+        this.byName = byName;
+        this.byId = byId;
+    }
+
+    /**
+     * @return every channel, in order
+     */
+    List<Channel> getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return the channel names, in order
+     */
+    List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @param name channel name
+     * @return the channel, or null if there is none with that name
+     */
+    Channel byName(String name) {
+        return name == null ? null : byName.get(name);
+    }
+
+    /**
+     * @param id channel id
+     * @return the channel, or null if there is none with that id
+     */
+    Channel byId(int id) {
+        return byId.get(id);
+    }
+
+    boolean isEmpty() {
+        return channels.isEmpty();
+    }
+}
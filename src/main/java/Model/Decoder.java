@@ -0,0 +1,61 @@
+package Model;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A decoder turns a response body from Sveriges Radio API into channel and
+ * program objects. The parser delegates to one of these, see
+ * {@link ParserEngine}.
+ */
+interface Decoder {
+
+    /**
+     * Decodes a channel listing.
+     * @param in response body
+     * @return a list of channels
+     * @throws ParserConfigurationException if the decoder could not be set up
+     * @throws SAXException if the data is malformed
+     * @throws IOException if the stream could not be read
+     */
+    ArrayList<Channel> channels(InputStream in)
+            throws ParserConfigurationException, SAXException, IOException;
+
+    /**
+     * Decodes a list of scheduled episodes.
+     * @param in response body
+     * @return the programs, sorted by start time
+     * @throws ParserConfigurationException if the decoder could not be set up
+     * @throws SAXException if the data is malformed
+     * @throws IOException if the stream could not be read
+     */
+    ScheduleColumns episodes(InputStream in)
+            throws ParserConfigurationException, SAXException, IOException;
+
+    /**
+     * Same as {@link #episodes(InputStream)}, but also hands the programs
+     * to a listener while decoding. A streaming decoder does so in small
+     * batches as they are read, others once the whole body is decoded.
+     * @param in response body
+     * @param progress receives the programs in batches in the order the
+     *                 batches were sent, each batch sorted by start time
+     * @return the programs, sorted by start time
+     * @throws ParserConfigurationException if the decoder could not be set up
+     * @throws SAXException if the data is malformed
+     * @throws IOException if the stream could not be read
+     */
+    default ScheduleColumns episodes(InputStream in,
+                                     Consumer<List<Program>> progress)
+            throws ParserConfigurationException, SAXException, IOException {
+
+        ScheduleColumns episodes = episodes(in);
+        progress.accept(episodes.programs());
+        return episodes;
+    }
+}
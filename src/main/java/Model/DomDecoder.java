@@ -0,0 +1,152 @@
+package Model;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Decodes xml by building the whole document tree and then searching it.
+ * This was the original parsing strategy and is kept for comparison with
+ * {@link StaxDecoder}.
+ */
+class DomDecoder implements Decoder {
+
+    @Override
+    public ArrayList<Channel> channels(InputStream in)
+            throws ParserConfigurationException, SAXException, IOException {
+
+        ArrayList<Channel> channels = new ArrayList<>();
+
+        Document doc = getDoc(in);
+
+        doc.getDocumentElement().normalize();
+        Element root = doc.getDocumentElement();
+
+        NodeList channelList = root.getElementsByTagName("channel");
+
+        for (int i = 0; i < channelList.getLength(); i++) {
+
+            Element element = (Element) channelList.item(i);
+            String imageUrl = null;
+
+            var imageElement = element.getElementsByTagName(
+                    "image").item(0);
+
+            int id = Integer.parseInt(element.getAttribute("id"));
+            String name = element.getAttribute("name");
+            if (imageElement != null) {
+
+                imageUrl = imageElement.getTextContent();
+            }
+
+            Channel channel = new Channel(id, name, imageUrl);
+            channels.add(channel);
+
+        }
+
+        return channels;
+    }
+
+    @Override
+    public ScheduleColumns episodes(InputStream in)
+            throws ParserConfigurationException, SAXException, IOException {
+
+        var channelEpisodes = new ScheduleColumns.Builder();
+        Document doc = getDoc(in);
+
+        if (doc != null) {
+            doc.getDocumentElement().normalize();
+            Element root = doc.getDocumentElement();
+
+
+            NodeList episodeList =
+                    root.getElementsByTagName("scheduledepisode");
+
+            for (int i = 0; i < episodeList.getLength(); i++) {
+
+                Element element = (Element) episodeList.item(i);
+
+                int id = 0;
+                String title = null;
+                String description = null;
+                String imageUrl = null;
+                LocalDateTime startTime = null;
+                LocalDateTime endTime = null;
+
+                var elem1 = (Element)element.getElementsByTagName(
+                        "program").item(0);
+                var elem2 = element.getElementsByTagName(
+                        "description").item(0);
+                var elem3 = element.getElementsByTagName(
+                        "imageurl").item(0);
+                var elem4 = element.getElementsByTagName(
+                        "title").item(0);
+                var elem5 = element.getElementsByTagName(
+                        "starttimeutc").item(0);
+                var elem6 = element.getElementsByTagName(
+                        "endtimeutc").item(0);
+
+                if (elem1 != null){
+
+                    id = Integer.parseInt(elem1.getAttribute("id"));
+                }
+
+                if (elem2 != null) {
+
+                    description = elem2.getTextContent();
+                }
+                if (elem3 != null) {
+
+                    imageUrl = elem3.getTextContent();
+                }
+                if (elem4 != null) {
+
+                    title = elem4.getTextContent();
+                }
+                if (elem5 != null) {
+
+                    startTime = XmlParser.formatDateTime(
+                            elem5.getTextContent());
+                }
+                if (elem6 != null) {
+
+                    endTime = XmlParser.formatDateTime(
+                            elem6.getTextContent());
+                }
+
+
+                channelEpisodes.add(id, title, description, imageUrl,
+                        startTime, endTime);
+
+            }
+        }
+        return channelEpisodes.build();
+    }
+
+    /**
+     * Parses a stream into a document.
+     *
+     * @param in stream of xml data
+     * @return a document of parsed data from API
+     * @throws ParserConfigurationException
+     * @throws IOException
+     * @throws SAXException
+     */
+    private Document getDoc(InputStream in) throws ParserConfigurationException
+            , SAXException, IOException {
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder = factory.newDocumentBuilder();
+
+        return builder.parse(in);
+    }
+}
@@ -0,0 +1,62 @@
+package Model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Adds decoded programs to the builder of a schedule and hands them to a
+ * listener in small batches while the schedule is still being decoded, so
+ * they can be shown before the whole response has arrived. A batch is a
+ * copy of the builder's latest rows. Without a listener programs are only
+ * added.
+ */
+final class EpisodeBatches {
+
+    static final int BATCH_SIZE = 16;
+
+    private final ScheduleColumns.Builder episodes;
+    private final Consumer<List<Program>> listener;
+    private int handedOver;
+
+    /**
+     * Constructor
+     * @param episodes builder the programs are added to
+     * @param listener receives each batch, may be null
+     */
+    EpisodeBatches(ScheduleColumns.Builder episodes,
+                   Consumer<List<Program>> listener) {
+
+        this.episodes = episodes;
+        this.listener = listener;
+        handedOver = episodes.size();
+    }
+
+    /**
+     * Adds a decoded program, and hands over the batch once it is full.
+     */
+    void add(int id, String title, String description, String imageUrl,
+             LocalDateTime startTime, LocalDateTime endTime) {
+
+        episodes.add(id, title, description, imageUrl, startTime, endTime);
+
+        if (episodes.size() - handedOver == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Hands over the programs added since the last batch, if there are any.
+     */
+    void flush() {
+
+        int size = episodes.size();
+
+        if (listener == null || size == handedOver) {
+            return;
+        }
+
+        listener.accept(episodes.rows(handedOver, size).programs());
+        handedOver = size;
+    }
+}
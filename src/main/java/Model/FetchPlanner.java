@@ -0,0 +1,338 @@
+package Model;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Plans schedule fetches in whole calendar days. A requested window is split
+ * into the days it touches, each day of a channel is cached under its own
+ * key, only the days not held are fetched, and the days are merged into one
+ * schedule. The url of a day never changes, so a day fetched again after
+ * its cache entry expired can be answered with "not modified".
+ */
+class FetchPlanner {
+
+    private final XmlParser parser;
+    private final ScheduleCache cache;
+    private final Map<ScheduleCache.Key,
+            CompletableFuture<ScheduleColumns>> inFlight;
+
+    private final LongAdder daysFetched = new LongAdder();
+    private final LongAdder daysHeld = new LongAdder();
+
+    /**
+     * Constructor
+     * @param parser fetches one day of a channel
+     * @param cache where the days are kept
+     */
+    FetchPlanner(XmlParser parser, ScheduleCache cache) {
+
+        this.parser = parser;
+        this.cache = cache;
+        inFlight = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Gets the schedule of a channel for every day the window touches.
+     * @param channelId channel id
+     * @param from start of the window
+     * @param to end of the window, not included
+     * @param refresh true to fetch every day even if it is held
+     * @return the programs of those days, merged and sorted by start time
+     * @throws SAXException if a response is malformed
+     * @throws ParserConfigurationException if the parser could not be set up
+     * @throws IOException if a day could not be fetched
+     */
+    ScheduleColumns schedule(int channelId, LocalDateTime from,
+                             LocalDateTime to, boolean refresh)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        return schedule(channelId, from, to, refresh, null);
+    }
+
+    /**
+     * Same as {@link #schedule(int, LocalDateTime, LocalDateTime, boolean)},
+     * but also hands the programs to a listener as they become available,
+     * day by day and in batches while a day is decoded. If every day is
+     * held nothing is handed over, the result is there at once anyway.
+     * @param channelId channel id
+     * @param from start of the window
+     * @param to end of the window, not included
+     * @param refresh true to fetch every day even if it is held
+     * @param progress receives the programs of each day, may be null
+     * @return the programs of those days, merged and sorted by start time
+     * @throws SAXException if a response is malformed
+     * @throws ParserConfigurationException if the parser could not be set up
+     * @throws IOException if a day could not be fetched
+     */
+    ScheduleColumns schedule(int channelId, LocalDateTime from,
+                             LocalDateTime to, boolean refresh,
+                             Consumer<List<Program>> progress)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        var parts = new ArrayList<ScheduleColumns>();
+        boolean fetching = false;
+
+        for (LocalDate date : days(from, to)) {
+
+            var key = dayKey(channelId, date);
+            var day = refresh ? null : cache.get(key);
+
+            //an expired copy, such as one restored from disk, is shown
+            //until the day has been fetched again
+            var stale = day != null || refresh ? null : cache.stale(key);
+
+            //after a failed fetch the expired copy is used as it is until
+            //the day is due to be retried
+            if (stale != null && cache.retryPending(key)) {
+                day = stale;
+            }
+
+            if (day == null) {
+
+                //the held days before this one are handed over first, so
+                //the listener gets the programs in order
+                if (progress != null && !fetching) {
+                    fetching = true;
+                    parts.forEach(held -> progress.accept(held.programs()));
+                }
+                if (progress != null && stale != null) {
+                    progress.accept(stale.programs());
+                }
+                day = fetchDay(key, stale, progress);
+            } else {
+                daysHeld.increment();
+
+                if (fetching) {
+                    progress.accept(day.programs());
+                }
+            }
+            parts.add(day);
+        }
+        return ScheduleColumns.merge(parts);
+    }
+
+    /**
+     * Gets the schedule of a channel for the days of a window from the
+     * cache only.
+     * @param channelId channel id
+     * @param from start of the window
+     * @param to end of the window, not included
+     * @return the merged days, or null if any day is not held
+     */
+    ScheduleColumns held(int channelId, LocalDateTime from,
+                         LocalDateTime to) {
+
+        var parts = new ArrayList<ScheduleColumns>();
+
+        for (LocalDate date : days(from, to)) {
+
+            var day = cache.peek(dayKey(channelId, date));
+
+            if (day == null) {
+                return null;
+            }
+            parts.add(day);
+        }
+        return ScheduleColumns.merge(parts);
+    }
+
+    /**
+     * @param channelId channel id
+     * @param from start of the window
+     * @param to end of the window, not included
+     * @return when the first of the held days of the window should be
+     * fetched again in epoch milliseconds, 0 if any day is not held
+     */
+    long refreshAt(int channelId, LocalDateTime from, LocalDateTime to) {
+
+        long first = Long.MAX_VALUE;
+
+        for (LocalDate date : days(from, to)) {
+
+            long refreshAt = cache.refreshAt(dayKey(channelId, date));
+
+            if (refreshAt == 0) {
+                return 0;
+            }
+            first = Math.min(first, refreshAt);
+        }
+        return first;
+    }
+
+    /**
+     * @param from start of the window
+     * @param to end of the window, not included
+     * @return the calendar days the window touches, at least one
+     */
+    static List<LocalDate> days(LocalDateTime from, LocalDateTime to) {
+
+        LocalDate first = from.toLocalDate();
+        LocalDate last = to.isAfter(from) ? to.minusNanos(1).toLocalDate()
+                : first;
+        var days = new ArrayList<LocalDate>();
+
+        for (LocalDate d = first; !d.isAfter(last); d = d.plusDays(1)) {
+            days.add(d);
+        }
+        return days;
+    }
+
+    /**
+     * @param channelId channel id
+     * @param date the day
+     * @return cache key of one day of a channel
+     */
+    static ScheduleCache.Key dayKey(int channelId, LocalDate date) {
+
+        return new ScheduleCache.Key(channelId, date, date);
+    }
+
+    /**
+     * @return number of days fetched from the API
+     */
+    long getDaysFetched() {
+        return daysFetched.sum();
+    }
+
+    /**
+     * @return number of days served from the cache
+     */
+    long getDaysHeld() {
+        return daysHeld.sum();
+    }
+
+    /**
+     * Fetches one day, falling back to a stale copy if that fails.
+     * @param key channel and day
+     * @param stale expired copy of the day, may be null
+     * @param progress receives the programs of the day, may be null
+     * @return the programs of the day
+     */
+    private ScheduleColumns fetchDay(ScheduleCache.Key key,
+                                     ScheduleColumns stale,
+                                     Consumer<List<Program>> progress)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        try {
+            return fetchDay(key, progress);
+
+        } catch (IOException e) {
+
+            if (stale == null || e instanceof InterruptedIOException) {
+                throw e;
+            }
+            System.err.println("Error refreshing schedule " + key
+                    + ", using the one held " + e.toString());
+            cache.retryLater(key);
+            return stale;
+        }
+    }
+
+    /**
+     * Fetches one day and stores it in the cache. If the same day is
+     * already being fetched, for example by the prefetcher, that request is
+     * waited for instead of starting a new one. If that request is cancelled
+     * the day is fetched again.
+     * @param key channel and day
+     * @param progress receives the programs of the day, may be null
+     * @return the programs of the day
+     */
+    private ScheduleColumns fetchDay(ScheduleCache.Key key,
+                                     Consumer<List<Program>> progress)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        var request = new CompletableFuture<ScheduleColumns>();
+        var running = inFlight.putIfAbsent(key, request);
+
+        if (running != null) {
+            ScheduleColumns programs;
+
+            try {
+                programs = await(running);
+
+            } catch (InterruptedIOException e) {
+
+                //the thread fetching the day was cancelled, not this one
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                return fetchDay(key, progress);
+            }
+
+            if (progress != null) {
+                progress.accept(programs.programs());
+            }
+            return programs;
+        }
+
+        ScheduleColumns programs;
+
+        try {
+            programs = parser.channelEpisodes(key.getChannelId(),
+                    key.getFrom(), progress);
+            cache.put(key, programs);
+            daysFetched.increment();
+
+        } catch (Throwable e) {
+
+            //waiters must be woken whatever went wrong, or they wait forever
+            inFlight.remove(key, request);
+            request.completeExceptionally(e);
+            throw e;
+        }
+
+        //removed before waiters are woken, so one that has to fetch again
+        //starts a new request instead of finding this one
+        inFlight.remove(key, request);
+        request.complete(programs);
+
+        return programs;
+    }
+
+    /**
+     * Waits for a day fetched by another thread.
+     * @param request the running request
+     * @return the programs of the day
+     */
+    private static ScheduleColumns await(
+            CompletableFuture<ScheduleColumns> request)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        try {
+            return request.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting "
+                    + "for programs");
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            }
+            if (cause instanceof ParserConfigurationException) {
+                throw (ParserConfigurationException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package Model;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transport built on {@link HttpClient}. One client is shared for all
+ * requests so connections are kept alive and reused. Responses are requested
+ * gzip compressed, and the ETag and Last-Modified headers of each response
+ * are remembered so the next request for the same url can be conditional.
+ * <p>
+ * Timeouts are read from the system properties
+ * {@code radioinfo.http.connectTimeout} and
+ * {@code radioinfo.http.requestTimeout}, in milliseconds. The request
+ * timeout also closes a body that sends nothing for that long, since the
+ * client itself only times out until the headers arrive.
+ * <p>
+ * The time until the response headers arrive is recorded in the
+ * {@link Metrics} timer {@code http.request}, and the body bytes read from
+ * the wire in the counter {@code http.bytesReceived}.
+ */
+class HttpClientTransport implements Transport {
+
+    private static final int MAX_VALIDATORS = 256;
+
+    private static final Metrics.Timer REQUEST =
+            Metrics.getInstance().timer("http.request");
+    private static final Metrics.Counter BYTES_RECEIVED =
+            Metrics.getInstance().counter("http.bytesReceived");
+
+    //checks open bodies for stalls, shared by every transport
+    private static final ScheduledThreadPoolExecutor IDLE_CHECKS =
+            createIdleChecks();
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final Map<String, Validators> validators;
+
+    /**
+     * Constructor, uses the timeouts from the system properties.
+     */
+    HttpClientTransport() {
+
+        this(Duration.ofMillis(Long.getLong(
+                "radioinfo.http.connectTimeout", 5000)),
+                Duration.ofMillis(Long.getLong(
+                        "radioinfo.http.requestTimeout", 15000)));
+    }
+
+    /**
+     * Constructor
+     * @param connectTimeout time allowed to establish a connection
+     * @param requestTimeout time allowed until the response headers arrive
+     */
+    HttpClientTransport(Duration connectTimeout, Duration requestTimeout) {
+
+        this.requestTimeout = requestTimeout;
+
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build();
+
+        validators = Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, Validators> eldest) {
+                        return size() > MAX_VALIDATORS;
+                    }
+                });
+    }
+
+    @Override
+    public InputStream open(URL url, boolean conditional) throws IOException {
+
+        String key = url.toString();
+        HttpRequest.Builder builder;
+
+        try {
+            builder = HttpRequest.newBuilder(url.toURI())
+                    .timeout(requestTimeout)
+                    .header("Accept-Encoding", "gzip");
+
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid url " + url, e);
+        }
+
+        Validators previous = conditional ? validators.get(key) : null;
+
+        if (previous != null) {
+            if (previous.etag != null) {
+                builder.header("If-None-Match", previous.etag);
+            }
+            if (previous.lastModified != null) {
+                builder.header("If-Modified-Since", previous.lastModified);
+            }
+        }
+
+        long start = REQUEST.start();
+        HttpResponse<InputStream> response;
+
+        try {
+            response = client.send(builder.build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request to " + url
+                    + " was interrupted");
+        } finally {
+            REQUEST.stop(start);
+        }
+
+        int status = response.statusCode();
+
+        if (status == 304 && previous != null) {
+
+            response.body().close();
+            return null;
+        }
+
+        if (status != 200) {
+
+            response.body().close();
+            throw new IOException("Server returned HTTP " + status
+                    + " for " + url);
+        }
+
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue(
+                "Last-Modified").orElse(null);
+
+        if (etag != null || lastModified != null) {
+            validators.put(key, new Validators(etag, lastModified));
+        }
+        else {
+            validators.remove(key);
+        }
+
+        InputStream body = new CountingInputStream(response.body(), url);
+
+        if (response.headers().firstValue("Content-Encoding")
+                .map(e -> e.equalsIgnoreCase("gzip")).orElse(false)) {
+
+            body = new GZIPInputStream(body);
+        }
+
+        return body;
+    }
+
+    private static ScheduledThreadPoolExecutor createIdleChecks() {
+
+        var executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "http-idle-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Cache validators returned by the server for one url.
+     */
+    private static class Validators {
+
+        private final String etag;
+        private final String lastModified;
+
+        Validators(String etag, String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Counts the bytes read from the response body. A read by an interrupted
+     * thread fails with an {@link InterruptedIOException}, so a cancelled
+     * task stops reading and the caller closes the body, which cancels the
+     * rest of the download. A body that receives nothing for a request
+     * timeout is closed, which fails a blocked read.
+     */
+    private class CountingInputStream extends FilterInputStream {
+
+        private final URL url;
+        private final ScheduledFuture<?> idleCheck;
+        private volatile long received;
+        private long receivedAtCheck = -1;
+        private volatile boolean stalled;
+
+        CountingInputStream(InputStream in, URL url) {
+            super(in);
+
+            this.url = url;
+            long period = requestTimeout.toNanos();
+            idleCheck = IDLE_CHECKS.scheduleWithFixedDelay(this::checkIdle,
+                    period, period, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Run by the idle checker, closes the body if nothing was received
+         * since the last check.
+         */
+        private void checkIdle() {
+
+            long now = received;
+
+            if (now != receivedAtCheck) {
+                receivedAtCheck = now;
+                return;
+            }
+
+            stalled = true;
+            idleCheck.cancel(false);
+
+            try {
+                in.close();
+            } catch (IOException e) {
+                System.err.println("Error closing stalled response "
+                        + e.toString());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            idleCheck.cancel(false);
+            super.close();
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            checkInterrupted();
+            int b;
+
+            try {
+                b = super.read();
+            } catch (IOException e) {
+                throw failed(e);
+            }
+            if (b != -1) {
+                BYTES_RECEIVED.increment();
+                received++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+
+            checkInterrupted();
+            int n;
+
+            try {
+                n = super.read(b, off, len);
+            } catch (IOException e) {
+                throw failed(e);
+            }
+            if (n > 0) {
+                BYTES_RECEIVED.add(n);
+                received += n;
+            }
+            return n;
+        }
+
+        private void checkInterrupted() throws InterruptedIOException {
+
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Read was interrupted");
+            }
+        }
+
+        /**
+         * The client reports an interrupted read as a plain IOException
+         * caused by an InterruptedException, and a read failed by the idle
+         * check as a closed stream.
+         */
+        private IOException failed(IOException e) {
+
+            if (stalled) {
+                var timeout = new HttpTimeoutException("No data received "
+                        + "from " + url + " for "
+                        + requestTimeout.toMillis() + " ms");
+                timeout.initCause(e);
+                return timeout;
+            }
+            if (e.getCause() instanceof InterruptedException) {
+                var interrupted = new InterruptedIOException(
+                        "Read was interrupted");
+                interrupted.initCause(e);
+                return interrupted;
+            }
+            return e;
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package Model;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache for channel and program images. Decoded images are kept in memory
+ * up to a byte budget and evicted least recently used first. Downloaded
+ * image files are also kept on disk, keyed by a hash of the url, so they
+ * survive a restart, up to a byte budget of their own with the least
+ * recently used files deleted first. An image url is downloaded once at a
+ * time: requests for it wait for the download already running, also when
+ * they ask for another size, and each size is decoded from the same bytes.
+ * Images can be requested at the size they are shown at, in which case
+ * only the scaled image is kept in memory.
+ * <p>
+ * Images are downloaded through a {@link Transport} of their own, so the
+ * timeouts of {@code radioinfo.transport} apply and a stalled image host
+ * fails instead of holding a thread.
+ * <p>
+ * The budgets are read from the system properties
+ * {@code radioinfo.images.maxBytes} and
+ * {@code radioinfo.images.maxDiskBytes}. The disk files are kept in the
+ * {@code images} folder of {@code radioinfo.store.dir}. Images served from
+ * memory, from disk and downloaded are counted in {@link Metrics} as
+ * {@code image.memoryHits}, {@code image.diskHits} and
+ * {@code image.downloads}.
+ */
+class ImageCache {
+
+    private static final Metrics.Timer FETCH =
+            Metrics.getInstance().timer("image.fetch");
+    private static final Metrics.Timer DECODE =
+            Metrics.getInstance().timer("image.decode");
+    private static final Metrics.Counter MEMORY_HITS =
+            Metrics.getInstance().counter("image.memoryHits");
+    private static final Metrics.Counter DISK_HITS =
+            Metrics.getInstance().counter("image.diskHits");
+    private static final Metrics.Counter DOWNLOADS =
+            Metrics.getInstance().counter("image.downloads");
+
+    private static final ImageCache SHARED = new ImageCache();
+
+    private final long maxBytes;
+    private final long maxDiskBytes;
+    private final Path directory;
+    private final Transport transport;
+    private final LinkedHashMap<String, BufferedImage> memory;
+    private final Map<String, CompletableFuture<BufferedImage>> inFlight;
+    private final Map<String, CompletableFuture<byte[]>> loading;
+    private final Object diskLock = new Object();
+    private ExecutorService warmer;
+    private long bytes;
+
+    //bytes of the files on disk, -1 until the folder has been looked at
+    private long diskBytes = -1;
+
+    /**
+     * Constructor, uses the budget and folder from the system properties.
+     */
+    ImageCache() {
+
+        this(Long.getLong("radioinfo.images.maxBytes", 32L << 20),
+                Long.getLong("radioinfo.images.maxDiskBytes", 64L << 20),
+                Paths.get(System.getProperty("radioinfo.store.dir",
+                        Paths.get(System.getProperty("user.home"),
+                                ".radioinfo").toString()), "images"),
+                Transport.fromProperty());
+    }
+
+    /**
+     * Constructor
+     * @param maxBytes memory budget for decoded images
+     * @param maxDiskBytes disk budget for downloaded image files
+     * @param directory folder for downloaded image files
+     * @param transport transport images are downloaded through
+     */
+    ImageCache(long maxBytes, long maxDiskBytes, Path directory,
+               Transport transport) {
+
+        this.maxBytes = maxBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.directory = directory;
+        this.transport = transport;
+        memory = new LinkedHashMap<>(16, 0.75f, true);
+        inFlight = new ConcurrentHashMap<>();
+        loading = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the cache shared by channels and programs
+     */
+    static ImageCache getInstance() {
+
+        return SHARED;
+    }
+
+    /**
+     * Gets an image from memory, disk or the network, in that order.
+     * @param url url of the image
+     * @return the decoded image, or null if it could not be decoded
+     * @throws IOException if the image could not be downloaded
+     */
+    BufferedImage get(String url) throws IOException {
+
+        return get(url, 0, 0);
+    }
+
+    /**
+     * Gets an image scaled to exactly the given size. The image is
+     * subsampled while it is decoded and then drawn into an image compatible
+     * with the screen, so it can be painted without further scaling. Each
+     * size is cached on its own, but the file is loaded once for all of
+     * them.
+     * @param url url of the image
+     * @param width width in pixels, 0 for the original size
+     * @param height height in pixels, 0 for the original size
+     * @return the decoded image, or null if it could not be decoded
+     * @throws IOException if the image could not be downloaded
+     */
+    BufferedImage get(String url, int width, int height) throws IOException {
+
+        String key = width > 0 ? url + "@" + width + "x" + height : url;
+        BufferedImage image = fromMemory(key);
+
+        if (image != null) {
+            MEMORY_HITS.increment();
+            return image;
+        }
+
+        var request = new CompletableFuture<BufferedImage>();
+        var running = inFlight.putIfAbsent(key, request);
+
+        if (running != null) {
+            try {
+                return await(running);
+
+            } catch (InterruptedIOException e) {
+
+                //the thread loading the image was cancelled, not this one
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                return get(url, width, height);
+            }
+        }
+
+        try {
+            byte[] data = load(url);
+            long start = DECODE.start();
+            image = width > 0 ? decodeScaled(data, width, height)
+                    : ImageIO.read(new ByteArrayInputStream(data));
+            DECODE.stop(start);
+
+            if (image != null) {
+                toMemory(key, image);
+            }
+
+        } catch (Throwable e) {
+
+            //waiters must be woken whatever went wrong, or they wait forever
+            inFlight.remove(key, request);
+            request.completeExceptionally(e);
+            throw e;
+        }
+
+        //removed before completing, so a request that has to load again
+        //starts a new one instead of finding this one
+        inFlight.remove(key, request);
+        request.complete(image);
+        return image;
+    }
+
+    /**
+     * Loads the given images in the background, so they are cached before
+     * they are first shown. Failures are ignored.
+     * @param urls image urls, null entries are skipped
+     * @param width width the images will be shown at
+     * @param height height the images will be shown at
+     */
+    void warm(Collection<String> urls, int width, int height) {
+
+        ExecutorService executor = warmer();
+
+        for (String url : urls) {
+
+            if (url != null) {
+                executor.execute(() -> {
+                    try {
+                        get(url, width, height);
+                    } catch (IOException e) {
+                        System.err.println("Error warming image " + url
+                                + " " + e.toString());
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Loads an image file, or waits for it if it is already being loaded
+     * for another request, such as one for another size.
+     */
+    private byte[] load(String url) throws IOException {
+
+        var request = new CompletableFuture<byte[]>();
+        var running = loading.putIfAbsent(url, request);
+
+        if (running != null) {
+            try {
+                return await(running);
+
+            } catch (InterruptedIOException e) {
+
+                //the thread loading the file was cancelled, not this one
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                return load(url);
+            }
+        }
+
+        byte[] data;
+
+        try {
+            data = read(url);
+
+        } catch (Throwable e) {
+
+            //waiters must be woken whatever went wrong, or they wait forever
+            loading.remove(url, request);
+            request.completeExceptionally(e);
+            throw e;
+        }
+
+        //removed before completing, so a request that sees it completed
+        //never finds it in the map
+        loading.remove(url, request);
+        request.complete(data);
+        return data;
+    }
+
+    /**
+     * Reads the image file from disk, or downloads it and saves it to disk.
+     */
+    private byte[] read(String url) throws IOException {
+
+        Path file = directory.resolve(fileName(url));
+        byte[] data = null;
+
+        if (Files.isRegularFile(file)) {
+            try {
+                data = Files.readAllBytes(file);
+                DISK_HITS.increment();
+                touch(file);
+
+            } catch (IOException e) {
+                System.err.println("Error reading cached image " + file);
+            }
+        }
+
+        if (data == null) {
+
+            long start = FETCH.start();
+
+            try (InputStream in = transport.open(new URL(url), false)) {
+                data = in.readAllBytes();
+            }
+            FETCH.stop(start);
+            DOWNLOADS.increment();
+            save(file, data);
+        }
+
+        return data;
+    }
+
+    /**
+     * Decodes an image file at reduced resolution and scales it to exactly
+     * the given size. The reader skips pixels while decoding so that the
+     * decoded image is at most twice the target size in each direction.
+     * @param data encoded image
+     * @param width target width
+     * @param height target height
+     * @return the scaled image, or null if no reader supports the format
+     * @throws IOException if the data could not be decoded
+     */
+    static BufferedImage decodeScaled(byte[] data, int width, int height)
+            throws IOException {
+
+        BufferedImage decoded;
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(data))) {
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(in, true, true);
+
+                int step = Math.max(1, Math.min(
+                        reader.getWidth(0) / (2 * width),
+                        reader.getHeight(0) / (2 * height)));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                decoded = reader.read(0, param);
+
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage scaled = createImage(width, height,
+                decoded.getColorModel().hasAlpha());
+        Graphics2D g = scaled.createGraphics();
+
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(decoded, 0, 0, width, height, null);
+
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Creates an image in the format of the screen, so painting it does not
+     * need a conversion. Falls back to a plain rgb image when there is no
+     * screen.
+     */
+    private static BufferedImage createImage(int width, int height,
+                                             boolean alpha) {
+
+        if (!GraphicsEnvironment.isHeadless()) {
+
+            GraphicsConfiguration config = GraphicsEnvironment
+                    .getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration();
+
+            return config.createCompatibleImage(width, height,
+                    alpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, alpha
+                ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Writes a downloaded file to disk through a temporary file, so a crash
+     * never leaves a truncated image in the cache.
+     */
+    private void save(Path file, byte[] data) {
+
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, "download", ".tmp");
+            Files.write(tmp, data);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            trimDisk(data.length);
+
+        } catch (IOException e) {
+            System.err.println("Error caching image " + e.toString());
+        }
+    }
+
+    /**
+     * Marks a file as just used, the least recently used files are deleted
+     * first.
+     */
+    private static void touch(Path file) {
+
+        try {
+            Files.setLastModifiedTime(file,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+
+        } catch (IOException e) {
+            System.err.println("Error touching cached image " + file);
+        }
+    }
+
+    /**
+     * Deletes the least recently used files once the files on disk are over
+     * the budget. The total is kept as files are added and counted again
+     * from the folder before anything is deleted.
+     * @param added size of the file just saved
+     */
+    private void trimDisk(long added) throws IOException {
+
+        synchronized (diskLock) {
+
+            diskBytes = diskBytes < 0 ? -1 : diskBytes + added;
+
+            if (diskBytes >= 0 && diskBytes <= maxDiskBytes) {
+                return;
+            }
+
+            var files = new ArrayList<Path>();
+            var modified = new HashMap<Path, Long>();
+            diskBytes = 0;
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+                    directory, file -> !file.toString().endsWith(".tmp"))) {
+
+                for (Path file : stream) {
+
+                    BasicFileAttributes attributes = Files.readAttributes(
+                            file, BasicFileAttributes.class);
+                    files.add(file);
+                    modified.put(file,
+                            attributes.lastModifiedTime().toMillis());
+                    diskBytes += attributes.size();
+                }
+            }
+
+            files.sort(Comparator.comparingLong(modified::get));
+
+            for (Path file : files) {
+
+                if (diskBytes <= maxDiskBytes) {
+                    break;
+                }
+
+                long size = Files.size(file);
+
+                if (Files.deleteIfExists(file)) {
+                    diskBytes -= size;
+                }
+            }
+        }
+    }
+
+    private synchronized BufferedImage fromMemory(String url) {
+
+        return memory.get(url);
+    }
+
+    private synchronized void toMemory(String url, BufferedImage image) {
+
+        BufferedImage old = memory.put(url, image);
+
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        bytes += sizeOf(image);
+
+        Iterator<BufferedImage> eldest = memory.values().iterator();
+
+        while (bytes > maxBytes && memory.size() > 1) {
+
+            bytes -= sizeOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private synchronized ExecutorService warmer() {
+
+        if (warmer == null) {
+            warmer = Executors.newFixedThreadPool(2, runnable -> {
+                Thread thread = new Thread(runnable, "image-warmer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return warmer;
+    }
+
+    /**
+     * Approximate memory used by a decoded image.
+     * @param image the image
+     * @return size in bytes
+     */
+    static long sizeOf(BufferedImage image) {
+
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private static <T> T await(CompletableFuture<T> request)
+            throws IOException {
+
+        try {
+            return request.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting "
+                    + "for image");
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param url image url
+     * @return file name for the url, a sha-256 hash in hex
+     */
+    private static String fileName(String url) {
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(
+                    url.getBytes(StandardCharsets.UTF_8));
+            var name = new StringBuilder(hash.length * 2);
+
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16));
+                name.append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.toString();
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the json format of Sveriges Radio API with a {@link JsonReader}.
+ * Only the fields used by channels and programs are read, everything else
+ * is skipped. Programs are read one at a time, so they can be handed to a
+ * listener while the rest of the body is still arriving.
+ */
+class JsonDecoder implements Decoder {
+
+    private static final String[] CHANNELS_ROOT = {"channels"};
+    private static final String[] CHANNEL_KEYS = {"id", "name", "image"};
+    private static final String[] SCHEDULE_ROOT = {"schedule"};
+    private static final String[] EPISODE_KEYS = {"program", "description",
+            "imageurl", "title", "starttimeutc", "endtimeutc"};
+    private static final String[] PROGRAM_KEYS = {"id"};
+
+    @Override
+    public ArrayList<Channel> channels(InputStream in) throws IOException {
+
+        ArrayList<Channel> channels = new ArrayList<>();
+        JsonReader reader = new JsonReader(in);
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            if (reader.nextName(CHANNELS_ROOT) != 0) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+
+            while (reader.hasNext()) {
+
+                int id = 0;
+                String name = null;
+                String imageUrl = null;
+
+                reader.beginObject();
+
+                while (reader.hasNext()) {
+
+                    switch (reader.nextName(CHANNEL_KEYS)) {
+
+                        case 0:
+                            id = reader.nextInt();
+                            break;
+                        case 1:
+                            name = reader.nextString();
+                            break;
+                        case 2:
+                            imageUrl = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+
+                channels.add(new Channel(id, name, imageUrl));
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+
+        return channels;
+    }
+
+    @Override
+    public ScheduleColumns episodes(InputStream in) throws IOException {
+
+        return episodes(in, null);
+    }
+
+    @Override
+    public ScheduleColumns episodes(InputStream in,
+                                    Consumer<List<Program>> progress)
+            throws IOException {
+
+        var channelEpisodes = new ScheduleColumns.Builder();
+        var batches = new EpisodeBatches(channelEpisodes, progress);
+        JsonReader reader = new JsonReader(in);
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            if (reader.nextName(SCHEDULE_ROOT) != 0) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+
+            while (reader.hasNext()) {
+
+                readEpisode(reader, batches);
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+
+        batches.flush();
+        return channelEpisodes.build();
+    }
+
+    /**
+     * Reads one scheduled episode object.
+     * @param reader reader positioned at the episode
+     * @param batches batches the program is added and handed over in
+     * @throws IOException if the data is malformed
+     */
+    private void readEpisode(JsonReader reader, EpisodeBatches batches)
+            throws IOException {
+
+        int id = 0;
+        String title = null;
+        String description = null;
+        String imageUrl = null;
+        LocalDateTime startTime = null;
+        LocalDateTime endTime = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            switch (reader.nextName(EPISODE_KEYS)) {
+
+                case 0:
+                    id = readProgramId(reader);
+                    break;
+                case 1:
+                    description = reader.nextString();
+                    break;
+                case 2:
+                    imageUrl = reader.nextString();
+                    break;
+                case 3:
+                    title = reader.nextString();
+                    break;
+                case 4:
+                    startTime = formatDate(reader.nextString());
+                    break;
+                case 5:
+                    endTime = formatDate(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        batches.add(id, title, description, imageUrl, startTime, endTime);
+    }
+
+    /**
+     * Reads the id from the nested program object.
+     * @return the id, 0 if the program is null, as the xml decoders do
+     */
+    private int readProgramId(JsonReader reader) throws IOException {
+
+        int id = 0;
+
+        if (reader.peek() == 'n') {
+            reader.skipValue();
+            return id;
+        }
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+
+            if (reader.nextName(PROGRAM_KEYS) == 0) {
+                id = reader.nextInt();
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return id;
+    }
+
+    /**
+     * The json format sends times as {@code /Date(milliseconds)/} in utc.
+     * The same one hour correction as for xml is applied, see
+     * {@link XmlParser#formatDateTime(String)}.
+     *
+     * @param date date string from the API
+     * @return the local date time, or null if the string is not a date
+     */
+    static LocalDateTime formatDate(String date) {
+
+        if (date == null || !date.startsWith("/Date(")) {
+            return null;
+        }
+
+        //only the milliseconds are read, an offset such as +0100 that may
+        //follow them is ignored
+        int start = date.startsWith("-", 6) ? 7 : 6;
+        int end = start;
+
+        while (end < date.length() && end - start < 18
+                && date.charAt(end) >= '0' && date.charAt(end) <= '9') {
+            end++;
+        }
+        if (end == start) {
+            return null;
+        }
+        long millis = Long.parseLong(date.substring(6, end));
+
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), 0,
+                ZoneOffset.UTC).plusHours(1);
+    }
+}
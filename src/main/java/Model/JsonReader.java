@@ -0,0 +1,332 @@
+package Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A small streaming json reader. Tokens are read straight from a character
+ * buffer, names are matched against known keys without creating strings and
+ * unknown values are skipped without being built. Separators are not
+ * validated, the reader expects well formed data from the API.
+ */
+class JsonReader {
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder text = new StringBuilder();
+    private int pos;
+    private int limit;
+
+    /**
+     * Constructor
+     * @param in utf-8 encoded json data
+     */
+    JsonReader(InputStream in) {
+
+        reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips whitespace and separators.
+     * @return the first character of the next token, or -1 at the end
+     * @throws IOException if the stream could not be read
+     */
+    int peek() throws IOException {
+
+        while (pos < limit || fill()) {
+
+            char c = buffer[pos];
+
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t'
+                    || c == ',' || c == ':') {
+                pos++;
+            }
+            else {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    void beginObject() throws IOException {
+        expect('{');
+    }
+
+    void endObject() throws IOException {
+        expect('}');
+    }
+
+    void beginArray() throws IOException {
+        expect('[');
+    }
+
+    void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * @return true if the current object or array has more elements
+     * @throws IOException if the stream could not be read
+     */
+    boolean hasNext() throws IOException {
+
+        int c = peek();
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Reads a name and looks it up among the given keys.
+     * @param keys the names the caller is interested in
+     * @return index of the matching key, or -1 if the name is unknown
+     * @throws IOException if the stream could not be read
+     */
+    int nextName(String[] keys) throws IOException {
+
+        readString();
+
+        for (int i = 0; i < keys.length; i++) {
+
+            if (keys[i].contentEquals(text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the next string value, or null if the value is null
+     * @throws IOException if the stream could not be read
+     */
+    String nextString() throws IOException {
+
+        if (peek() == 'n') {
+            skipLiteral();
+            return null;
+        }
+        readString();
+        return text.toString();
+    }
+
+    /**
+     * @return the next value as an integer, 0 if the value is null
+     * @throws IOException if the value is not an integer
+     */
+    long nextLong() throws IOException {
+
+        int c = peek();
+
+        if (c == 'n') {
+            skipLiteral();
+            return 0;
+        }
+
+        boolean negative = c == '-';
+        if (negative) {
+            pos++;
+        }
+
+        long value = 0;
+        int digits = 0;
+
+        while (pos < limit || fill()) {
+
+            char d = buffer[pos];
+            if (d < '0' || d > '9') {
+                break;
+            }
+            value = value * 10 + (d - '0');
+            digits++;
+            pos++;
+        }
+
+        if (digits == 0 || ((pos < limit || fill())
+                && isLiteralPart(buffer[pos]))) {
+            throw new IOException("Expected an integer at offset " + pos);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return the next value as an int, 0 if the value is null
+     * @throws IOException if the value is not an integer
+     */
+    int nextInt() throws IOException {
+
+        return (int) nextLong();
+    }
+
+    /**
+     * Skips the next value, including nested objects and arrays.
+     * @throws IOException if the stream could not be read
+     */
+    void skipValue() throws IOException {
+
+        int depth = 0;
+
+        do {
+            int c = peek();
+
+            switch (c) {
+
+                case '{':
+                case '[':
+                    depth++;
+                    pos++;
+                    break;
+
+                case '}':
+                case ']':
+                    depth--;
+                    pos++;
+                    break;
+
+                case '"':
+                    skipString();
+                    break;
+
+                case -1:
+                    throw new IOException("Unexpected end of json data");
+
+                default:
+                    skipLiteral();
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Reads a quoted string into the shared text buffer.
+     */
+    private void readString() throws IOException {
+
+        expect('"');
+        text.setLength(0);
+
+        while (pos < limit || fill()) {
+
+            char c = buffer[pos++];
+
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                text.append(readEscape());
+            }
+            else {
+                text.append(c);
+            }
+        }
+        throw new IOException("Unterminated string");
+    }
+
+    /**
+     * Skips a quoted string without storing it.
+     */
+    private void skipString() throws IOException {
+
+        expect('"');
+
+        while (pos < limit || fill()) {
+
+            char c = buffer[pos++];
+
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                readEscape();
+            }
+        }
+        throw new IOException("Unterminated string");
+    }
+
+    /**
+     * Reads the character after a backslash.
+     */
+    private char readEscape() throws IOException {
+
+        char c = nextChar();
+
+        switch (c) {
+
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw new IOException("Invalid unicode escape");
+                    }
+                    value = value * 16 + digit;
+                }
+                return (char) value;
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Skips a number, true, false or null.
+     */
+    private void skipLiteral() throws IOException {
+
+        while ((pos < limit || fill()) && isLiteralPart(buffer[pos])) {
+            pos++;
+        }
+    }
+
+    private static boolean isLiteralPart(int c) {
+
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z') || c == '-' || c == '+'
+                || c == '.';
+    }
+
+    private char nextChar() throws IOException {
+
+        if (pos < limit || fill()) {
+            return buffer[pos++];
+        }
+        throw new IOException("Unexpected end of json data");
+    }
+
+    private void expect(char expected) throws IOException {
+
+        int c = peek();
+
+        if (c != expected) {
+            throw new IOException("Expected '" + expected + "' but found "
+                    + (c == -1 ? "end of data" : "'" + (char) c + "'"));
+        }
+        pos++;
+    }
+
+    /**
+     * Refills the buffer.
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+
+        int n = reader.read(buffer, 0, buffer.length);
+
+        if (n <= 0) {
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,374 @@
+package Model;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the counters and latency histograms recorded while the
+ * application runs, shared by the whole process. Recording takes no locks:
+ * a counter is a {@link LongAdder} and a timer adds one to a bucket of a
+ * histogram with buckets of 1/8 of a power of two, so each value is kept
+ * within 12.5%. Callers look up their metrics once and keep them in
+ * fields, so recording costs a few nanoseconds.
+ * <p>
+ * The metrics are published as the MBean {@code RadioInfo:type=Metrics}
+ * once {@link #registerMBean()} has been called.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    static final String OBJECT_NAME = "RadioInfo:type=Metrics";
+
+    private static final Metrics SHARED = new Metrics();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private volatile boolean registered;
+
+    Metrics() {
+
+    }
+
+    /**
+     * @return the registry shared by the process
+     */
+    public static Metrics getInstance() {
+
+        return SHARED;
+    }
+
+    /**
+     * @param name name of the counter, such as {@code api.errors}
+     * @return the counter, created the first time the name is used
+     */
+    public Counter counter(String name) {
+
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * @param name name of the timer, such as {@code api.fetch}
+     * @return the timer, created the first time the name is used
+     */
+    public Timer timer(String name) {
+
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Publishes the shared registry to the platform MBean server. Calling
+     * it again does nothing.
+     */
+    public static synchronized void registerMBean() {
+
+        if (SHARED.registered) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(SHARED,
+                    new ObjectName(OBJECT_NAME));
+            SHARED.registered = true;
+
+        } catch (JMException e) {
+            System.err.println("Error registering metrics " + e.toString());
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+
+        var values = new TreeMap<String, Long>();
+        counters.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+
+    @Override
+    public Snapshot[] getTimers() {
+
+        return new TreeMap<>(timers).values().stream()
+                .map(Timer::snapshot)
+                .toArray(Snapshot[]::new);
+    }
+
+    /**
+     * @return one line with the 95th percentile of every timer that has
+     * recorded something, and the counters that are not zero
+     */
+    @Override
+    public String getSummary() {
+
+        var line = new StringBuilder();
+
+        for (Snapshot s : getTimers()) {
+
+            if (s.getCount() > 0) {
+                line.append(line.length() == 0 ? "" : "  ")
+                        .append(s.getName()).append(" p95 ")
+                        .append(format(s.getP95Millis())).append(" ms");
+            }
+        }
+        getCounters().forEach((name, value) -> {
+            if (value > 0) {
+                line.append(line.length() == 0 ? "" : "  ")
+                        .append(name).append(' ').append(value);
+            }
+        });
+        return line.toString();
+    }
+
+    @Override
+    public void reset() {
+
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+    }
+
+    private static String format(double millis) {
+
+        return millis < 10 ? String.format("%.1f", millis)
+                : String.format("%.0f", millis);
+    }
+
+    /**
+     * A count of events.
+     */
+    public static final class Counter {
+
+        private final LongAdder count = new LongAdder();
+
+        Counter() {
+
+        }
+
+        public void increment() {
+
+            count.increment();
+        }
+
+        public void add(long n) {
+
+            count.add(n);
+        }
+
+        public long get() {
+
+            return count.sum();
+        }
+
+        void reset() {
+
+            count.reset();
+        }
+    }
+
+    /**
+     * A histogram of durations in nanoseconds. Values below 16 ns have a
+     * bucket each, larger values fall in one of eight buckets per power of
+     * two.
+     */
+    public static final class Timer {
+
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int EXACT = 2 * SUB_BUCKETS;
+        private static final int BUCKETS = EXACT
+                + (63 - SUB_BITS - 1) * SUB_BUCKETS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Timer(String name) {
+
+            this.name = name;
+        }
+
+        /**
+         * @return the start time to pass to {@link #stop(long)}
+         */
+        public long start() {
+
+            return System.nanoTime();
+        }
+
+        /**
+         * Records the time since a start.
+         * @param start value returned by {@link #start()}
+         */
+        public void stop(long start) {
+
+            record(System.nanoTime() - start);
+        }
+
+        /**
+         * Records a duration.
+         * @param nanos duration in nanoseconds, negative values count as 0
+         */
+        public void record(long nanos) {
+
+            long value = Math.max(0, nanos);
+
+            buckets.getAndIncrement(bucket(value));
+            total.add(value);
+
+            //most values are not a new max, so this rarely writes
+            long current = max.get();
+            while (value > current && !max.compareAndSet(current, value)) {
+                current = max.get();
+            }
+        }
+
+        /**
+         * @return the name of the timer
+         */
+        public String getName() {
+
+            return name;
+        }
+
+        /**
+         * @return the current state of the histogram. Values recorded while
+         * it is taken may be partly included.
+         */
+        public Snapshot snapshot() {
+
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+
+            long largest = max.get();
+
+            //a bucket's upper bound can be above every recorded value
+            return new Snapshot(name, count,
+                    count == 0 ? 0 : total.sum() / (double) count / 1e6,
+                    Math.min(largest, percentile(counts, count, 0.50)) / 1e6,
+                    Math.min(largest, percentile(counts, count, 0.95)) / 1e6,
+                    Math.min(largest, percentile(counts, count, 0.99)) / 1e6,
+                    largest / 1e6);
+        }
+
+        void reset() {
+
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            total.reset();
+            max.set(0);
+        }
+
+        static int bucket(long value) {
+
+            if (value < EXACT) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exponent - SUB_BITS))
+                    & (SUB_BUCKETS - 1);
+
+            return EXACT + (exponent - SUB_BITS - 1) * SUB_BUCKETS + sub;
+        }
+
+        /**
+         * @return the largest value that falls in a bucket
+         */
+        static long upperBound(int bucket) {
+
+            if (bucket < EXACT) {
+                return bucket;
+            }
+            int exponent = (bucket - EXACT) / SUB_BUCKETS + SUB_BITS + 1;
+            int sub = (bucket - EXACT) % SUB_BUCKETS;
+            long width = 1L << (exponent - SUB_BITS);
+
+            return ((long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS))
+                    + width - 1;
+        }
+
+        private static long percentile(long[] counts, long count, double p) {
+
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+
+                seen += counts[i];
+
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(counts.length - 1);
+        }
+    }
+
+    /**
+     * The state of a timer at one point, in milliseconds.
+     */
+    public static final class Snapshot {
+
+        private final String name;
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        Snapshot(String name, long count, double meanMillis,
+                 double p50Millis, double p95Millis, double p99Millis,
+                 double maxMillis) {
+
+            this.name = name;
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package Model;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link Metrics}, readable with JConsole or any
+ * other JMX client.
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return the value of every counter, by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return count, mean, percentiles and max of every timer, by name
+     */
+    Metrics.Snapshot[] getTimers();
+
+    /**
+     * @return a one line summary of the timers and counters
+     */
+    String getSummary();
+
+    /**
+     * Sets every counter and timer back to zero.
+     */
+    void reset();
+}
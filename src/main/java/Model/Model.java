@@ -6,25 +6,71 @@ import javax.swing.*;
 import javax.xml.parsers.ParserConfigurationException;
 import java.awt.*;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * This class acts as the "main" Model class.
  */
 public class Model {
 
-    private ArrayList<Channel> channels;
+    private static final Duration MAX_REFRESH_INTERVAL = Duration.ofHours(1);
+
+    private static final Metrics.Counter PROGRAM_ERRORS =
+            Metrics.getInstance().counter("program.errors");
+
+    //days fetched close together, such as by the prefetcher, are written
+    //to disk in one save
+    private static final long SAVE_DELAY_MILLIS = 2000;
+
+    private volatile ChannelRegistry channels;
     private XmlParser xmlParser;
     private ImageIcon channelImg;
     private String errorMSg = null;
+    private final SchedulePrefetcher prefetcher;
+    private final ScheduleCache scheduleCache;
+    private final ScheduleStore store;
+    private final FetchPlanner planner;
+    private final AtomicBoolean savePending = new AtomicBoolean();
+    private ScheduledExecutorService storeWriter;
 
     /**
      * Constructor, initializes the xmlreader and channel list
      */
     public Model() {
-        channels = new ArrayList<>();
-        xmlParser = new XmlParser();
+        this(new XmlParser());
+    }
+
+    /**
+     * Constructor
+     * @param xmlParser parser used to fetch from the API
+     */
+    Model(XmlParser xmlParser) {
+        this(xmlParser, new ScheduleStore());
+    }
+
+    /**
+     * Constructor
+     * @param xmlParser parser used to fetch from the API
+     * @param store where the schedules are saved between runs
+     */
+    Model(XmlParser xmlParser, ScheduleStore store) {
+        channels = ChannelRegistry.EMPTY;
+        this.xmlParser = xmlParser;
+        prefetcher = new SchedulePrefetcher();
+        scheduleCache = new ScheduleCache();
+        this.store = store;
+        planner = new FetchPlanner(xmlParser, scheduleCache);
     }
 
     /**
@@ -33,7 +79,7 @@ public class Model {
     public void loadChannels() {
 
         try {
-            channels = xmlParser.channelParser();
+            channels = new ChannelRegistry(xmlParser.channelParser());
 
         } catch (ParserConfigurationException | IOException | SAXException e) {
 
@@ -45,21 +91,163 @@ public class Model {
     }
 
     /**
-     * Goes through the list of channels, if the name matches, retrieves the
-     * corresponding image to that channel
-     * @param channelName the name of a specific channel
-     * @return image for that channel
+     * Starts loading the channel logos into the image cache, decoded at the
+     * size they are shown at.
+     * @param size width and height of the logos in pixels
      */
-    public void loadChannelImage(String channelName) {
+    public void warmChannelImages(int size) {
 
-        for (Channel c : channels) {
+        var urls = new ArrayList<String>();
 
-            if (c.getName().equals(channelName)) {
+        for (Channel c : channels.getChannels()) {
 
-                channelImg = c.getImage();
+            urls.add(c.getImageUrl());
+        }
+        ImageCache.getInstance().warm(urls, size, size);
+    }
+
+    /**
+     * Reads channels and schedules saved by a previous run from disk. The
+     * schedules are put in the cache as fetched when they were saved, so
+     * older ones are stale: they are shown while fresh data is loaded, and
+     * instead of it if that fails.
+     * @return true if any channels were restored
+     */
+    public boolean restoreSchedules() {
+
+        try {
+            ScheduleStore.Snapshot snapshot = store.load();
+
+            if (snapshot == null) {
+                return false;
             }
+
+            if (channels.isEmpty()) {
+                channels = new ChannelRegistry(snapshot.getChannels());
+            }
+
+            for (var entry : snapshot.getSchedules().entrySet()) {
+
+                scheduleCache.put(entry.getKey(), entry.getValue(),
+                        snapshot.getSavedAt());
+            }
+            return !channels.isEmpty();
+
+        } catch (IOException | RuntimeException e) {
+
+            System.err.println("Error restoring schedules " + e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the channels and every cached schedule to disk.
+     */
+    public void saveSchedules() {
+
+        try {
+            store.save(channels.getChannels(), scheduleCache.snapshot());
+
+        } catch (IOException e) {
+
+            System.err.println("Error saving schedules " + e.toString());
+        }
+    }
+
+    /**
+     * Plans a save of the schedules on the store's own thread, unless one
+     * is already planned. Runs of fetches are written once, and threads
+     * loading programs never wait for the disk. A save still planned when
+     * the application exits is done before it does.
+     */
+    private void saveSoon() {
+
+        if (savePending.compareAndSet(false, true)) {
+            storeWriter().schedule(this::pendingSave, SAVE_DELAY_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Does the planned save, if it has not been done yet.
+     */
+    private void pendingSave() {
+
+        if (savePending.compareAndSet(true, false)) {
+            saveSchedules();
+        }
+    }
+
+    /**
+     * Does a planned save now and waits for one already being written, so
+     * the store folder is left alone afterwards, for example before a test
+     * removes it. A later load plans its save as before.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void flushStore() throws InterruptedException {
+
+        if (storeWriter != null) {
+            storeWriter.shutdownNow();
+            storeWriter.awaitTermination(1, TimeUnit.MINUTES);
+            storeWriter = null;
+        }
+        pendingSave();
+    }
+
+    /**
+     * @return the thread writing the store, created the first time a save
+     * is planned
+     */
+    private synchronized ScheduledExecutorService storeWriter() {
+
+        if (storeWriter == null) {
+
+            storeWriter = Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "schedule-store");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    this::pendingSave, "schedule-store-exit"));
+        }
+        return storeWriter;
+    }
+
+    /**
+     * Starts loading the schedules of all loaded channels in the background,
+     * so that choosing a channel later can be served from memory. The
+     * schedules are saved to disk once all of them have been loaded.
+     */
+    public void prefetchSchedules() {
+
+        var ids = new ArrayList<Integer>();
+
+        for (Channel c : channels.getChannels()) {
+
+            ids.add(c.getId());
         }
+        LocalDateTime now = LocalDateTime.now();
 
+        prefetcher.prefetch(ids, id -> planner.schedule(id,
+                now.minusHours(12), now.plusHours(12), false))
+                .thenRun(this::saveSoon);
+    }
+
+    /**
+     * Looks up the channel by name and retrieves the corresponding image to
+     * that channel, decoded at the given size
+     * @param channelName the name of a specific channel
+     * @param size width and height of the image in pixels
+     * @return the image, also kept for {@link #getChannelImg()}
+     */
+    public ImageIcon loadChannelImage(String channelName, int size) {
+
+        Channel channel = channels.byName(channelName);
+        channelImg = channel == null ? null : channel.getImage(size, size);
+
+        return channelImg;
     }
 
     public ImageIcon getChannelImg(){
@@ -68,39 +256,51 @@ public class Model {
     }
 
     /**
-     * Goes through a list of channels and fills another list with just
-     * the channel names
-     * @return a list of channel names
+     * @return an unmodifiable list of channel names, in the order the API
+     * returned them
      */
-    public ArrayList<String> getChannelNames() {
+    public List<String> getChannelNames() {
 
-        ArrayList<String> channelNames = new ArrayList<>();
+        return channels.getNames();
 
-        for (Channel c : channels) {
+    }
 
-            channelNames.add(c.getName());
-        }
-        return channelNames;
+    /**
+     * @return the ids of the channels, in the order of
+     * {@link #getChannelNames()}
+     */
+    public List<Integer> getChannelIds() {
+
+        var ids = new ArrayList<Integer>();
 
+        for (Channel c : channels.getChannels()) {
+
+            ids.add(c.getId());
+        }
+        return ids;
     }
 
     /**
      * Helper method used to get the id for a channel based on the channel
      * name
      * @param name channel name
-     * @return the id for the channel
+     * @return the id for the channel, 0 if there is no such channel
      */
-    private int getChannelId(String name) {
-        int id = 0;
+    public int getChannelId(String name) {
 
-        for (Channel c : channels) {
+        Channel channel = channels.byName(name);
+        return channel == null ? 0 : channel.getId();
 
-            if (name.equals(c.getName())) {
+    }
 
-                id = c.getId();
-            }
-        }
-        return id;
+    /**
+     * @param id channel id
+     * @return the name of the channel, null if there is no such channel
+     */
+    public String getChannelName(int id) {
+
+        Channel channel = channels.byId(id);
+        return channel == null ? null : channel.getName();
 
     }
 
@@ -113,39 +313,335 @@ public class Model {
      * @return a list of programs
      */
     public ArrayList<Program> getPrograms(String name) {
+
+        return getPrograms(name, false);
+    }
+
+    /**
+     * Same as {@link #getPrograms(String)}, but can skip the schedule cache
+     * and always fetch the schedule from the API.
+     * @param name channel name
+     * @param bypassCache true to fetch even if a cached schedule exists
+     * @return a list of programs
+     */
+    public ArrayList<Program> getPrograms(String name, boolean bypassCache) {
+
+        return getPrograms(name, bypassCache, null);
+    }
+
+    /**
+     * Same as {@link #getPrograms(String, boolean)}, but the programs are
+     * also handed to a listener in small batches while days of the schedule
+     * are still being fetched, so they can be shown before the last one
+     * has arrived. The batches are in the order the API sent them and may
+     * repeat a program that spans two days, the returned list is the
+     * complete and sorted result. Nothing is handed over if every day is
+     * held.
+     * @param name channel name
+     * @param bypassCache true to fetch even if a cached schedule exists
+     * @param progress receives the programs within the window as they are
+     *                 decoded, may be null
+     * @return a list of programs
+     */
+    public ArrayList<Program> getPrograms(String name, boolean bypassCache,
+                                          Consumer<List<Program>> progress) {
         int id = getChannelId(name);
 
         var timeValidPrograms = new ArrayList<Program>();
 
         try {
-            LocalDateTime pastDateTime = LocalDateTime.now().minusHours(12);
-            LocalDateTime futureDateTime = LocalDateTime.now().plusHours(12);
+            LocalDateTime now = LocalDateTime.now();
+            long past = ScheduleColumns.toEpochSecond(now.minusHours(12));
+            long future = ScheduleColumns.toEpochSecond(now.plusHours(12));
 
             if (id != 0) {
-                var programs = new ArrayList<>(xmlParser.channelEpisodes(id));
+                var programs = schedule(id, now.minusHours(12),
+                        now.plusHours(12), bypassCache,
+                        progress == null ? null
+                                : batch -> starting(batch, past + 1, future,
+                                        progress));
 
-                for (Program p : programs) {
+                timeValidPrograms = programs.starting(past + 1, future);
+            }
+        } catch (SAXException | ParserConfigurationException | IOException e) {
 
-                    LocalDateTime startTime = p.getStartTime();
+            programsFailed(e);
+        }
 
-                    if (startTime.isBefore(futureDateTime) &&
-                            startTime.isAfter(pastDateTime)) {
+        return timeValidPrograms;
+    }
+
+    /**
+     * Hands the programs of a batch that start inside {@code [from, to)}
+     * to a listener, if there are any.
+     */
+    private static void starting(List<Program> batch, long from, long to,
+                                 Consumer<List<Program>> listener) {
+
+        var programs = new ArrayList<Program>(batch.size());
+
+        for (Program p : batch) {
+
+            long start = ScheduleColumns.toEpochSecond(p.getStartTime());
 
-                        timeValidPrograms.add(p);
-                    }
-                }
+            if (start >= from && start < to) {
+                programs.add(p);
             }
-        } catch (SAXException | ParserConfigurationException | IOException e) {
+        }
 
-            errorMSg = "Programs could not be loaded. " +
-                    "Caused by: " + e.getClass().getSimpleName();
+        if (!programs.isEmpty()) {
+            listener.accept(programs);
+        }
+    }
 
-            System.err.println("Error loading programs " + e.toString());
+    /**
+     * Plans when the programs of a channel should next be loaded, based on
+     * the schedule already held. That is the earliest of the time the next
+     * program comes within 12 hours, the time the first program shown
+     * drops out of the window, the time a held day expires from the cache,
+     * or is retried after a failed refresh, and one hour from now.
+     * @param name channel name
+     * @return time of the next refresh
+     */
+    public LocalDateTime nextRefresh(String name) {
 
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minusHours(12);
+        LocalDateTime to = now.plusHours(12);
+        LocalDateTime next = now.plus(MAX_REFRESH_INTERVAL);
+        int id = getChannelId(name);
 
+        if (id == 0) {
+            return next;
         }
 
-        return timeValidPrograms;
+        long refreshAt = planner.refreshAt(id, from, to);
+
+        if (refreshAt != 0) {
+            next = earliest(next, LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(refreshAt), ZoneId.systemDefault()));
+        }
+
+        ScheduleColumns held = planner.held(id, from, to);
+
+        if (held != null) {
+
+            int entering = held.firstStartingAt(
+                    ScheduleColumns.toEpochSecond(to));
+            int leaving = held.firstStartingAt(
+                    ScheduleColumns.toEpochSecond(from) + 1);
+
+            //with no later program held, the window reaches a day that is
+            //not held yet at midnight
+            next = earliest(next, entering < held.size()
+                    ? ScheduleColumns.toLocalDateTime(held.startAt(entering))
+                            .minusHours(12)
+                    : to.toLocalDate().plusDays(1).atStartOfDay()
+                            .minusHours(12));
+
+            if (leaving < held.size()) {
+                next = earliest(next, ScheduleColumns.toLocalDateTime(
+                        held.startAt(leaving)).plusHours(12));
+            }
+        }
+        return next;
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+
+        return b.isBefore(a) ? b : a;
+    }
+
+    /**
+     * Gets the programs of a channel that are on air at some point in the
+     * window {@code [from, to)}. Only the days of the window that are not
+     * already held are fetched.
+     * @param name channel name
+     * @param from start of the window
+     * @param to end of the window
+     * @return the overlapping programs, by start time
+     */
+    public ArrayList<Program> getPrograms(String name, LocalDateTime from,
+                                          LocalDateTime to) {
+
+        ScheduleColumns programs = heldSchedule(name, dayBefore(from), to);
+
+        return programs == null ? new ArrayList<>() : programs.overlapping(
+                ScheduleColumns.toEpochSecond(from),
+                ScheduleColumns.toEpochSecond(to));
+    }
+
+    /**
+     * Same as {@link #getPrograms(String, LocalDateTime, LocalDateTime)},
+     * but failures are thrown to the caller instead of kept for
+     * {@link #displayErrorMsg(Component)}, and the store on disk is not
+     * written. Meant for use without a window.
+     * @param name channel name
+     * @param from start of the window
+     * @param to end of the window
+     * @return the overlapping programs, by start time
+     * @throws SAXException if a response is malformed
+     * @throws ParserConfigurationException if the parser could not be set up
+     * @throws IOException if a day could not be fetched
+     */
+    public ArrayList<Program> fetchPrograms(String name, LocalDateTime from,
+                                            LocalDateTime to)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        int id = getChannelId(name);
+
+        if (id == 0) {
+            throw new IllegalArgumentException("Unknown channel " + name);
+        }
+
+        return fetchPrograms(id, from, to);
+    }
+
+    /**
+     * Same as {@link #fetchPrograms(String, LocalDateTime, LocalDateTime)},
+     * for a channel given by id. Channels may share a name, an id always
+     * picks the channel asked for.
+     * @param id channel id
+     * @param from start of the window
+     * @param to end of the window
+     * @return the overlapping programs, by start time
+     * @throws SAXException if a response is malformed
+     * @throws ParserConfigurationException if the parser could not be set up
+     * @throws IOException if a day could not be fetched
+     */
+    public ArrayList<Program> fetchPrograms(int id, LocalDateTime from,
+                                            LocalDateTime to)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        if (channels.byId(id) == null) {
+            throw new IllegalArgumentException("Unknown channel " + id);
+        }
+
+        return planner.schedule(id, dayBefore(from), to, false).overlapping(
+                ScheduleColumns.toEpochSecond(from),
+                ScheduleColumns.toEpochSecond(to));
+    }
+
+    /**
+     * Same as {@link #getProgramAt(String, LocalDateTime)}, for a channel
+     * given by id, with failures thrown to the caller. Meant for use
+     * without a window.
+     * @param id channel id
+     * @param time the time
+     * @return the program, or null if nothing is on air
+     * @throws SAXException if a response is malformed
+     * @throws ParserConfigurationException if the parser could not be set up
+     * @throws IOException if a day could not be fetched
+     */
+    public Program fetchProgramAt(int id, LocalDateTime time)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        if (channels.byId(id) == null) {
+            throw new IllegalArgumentException("Unknown channel " + id);
+        }
+
+        return planner.schedule(id, dayBefore(time), time, false)
+                .at(ScheduleColumns.toEpochSecond(time));
+    }
+
+    /**
+     * Gets the program of a channel that is on air at the given time.
+     * @param name channel name
+     * @param time the time
+     * @return the program, or null if nothing is on air or the schedule
+     * could not be loaded
+     */
+    public Program getProgramAt(String name, LocalDateTime time) {
+
+        ScheduleColumns programs = heldSchedule(name, dayBefore(time), time);
+
+        return programs == null ? null
+                : programs.at(ScheduleColumns.toEpochSecond(time));
+    }
+
+    /**
+     * A program running over midnight is listed on the day it starts, so
+     * the day before a window is loaded too when looking for the programs
+     * on air in it.
+     * @param from start of the window
+     * @return start of the days to load for the window
+     */
+    private static LocalDateTime dayBefore(LocalDateTime from) {
+
+        return from.minusDays(1);
+    }
+
+    /**
+     * Gets the schedule of a channel for the days from one time to another,
+     * logging the error if it could not be loaded.
+     * @return the schedule, or null if there is no such channel or it
+     * could not be loaded
+     */
+    private ScheduleColumns heldSchedule(String name, LocalDateTime from,
+                                         LocalDateTime to) {
+
+        int id = getChannelId(name);
+
+        if (id == 0) {
+            return null;
+        }
+
+        try {
+            return schedule(id, from, to, false);
+
+        } catch (SAXException | ParserConfigurationException | IOException e) {
+
+            programsFailed(e);
+            return null;
+        }
+    }
+
+    /**
+     * Records a failed program load. A load cancelled by interrupting its
+     * thread was not asked for any more, so no error is shown for it.
+     * @param e the cause
+     */
+    private void programsFailed(Exception e) {
+
+        if (e instanceof InterruptedIOException) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        PROGRAM_ERRORS.increment();
+        errorMSg = "Programs could not be loaded. " +
+                "Caused by: " + e.getClass().getSimpleName();
+
+        System.err.println("Error loading programs " + e.toString());
+    }
+
+    /**
+     * Gets the days of a schedule through the planner and plans a save of
+     * the schedules if any day had to be fetched.
+     */
+    private ScheduleColumns schedule(int id, LocalDateTime from,
+                                     LocalDateTime to, boolean refresh)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        return schedule(id, from, to, refresh, null);
+    }
+
+    /**
+     * Same as {@link #schedule(int, LocalDateTime, LocalDateTime, boolean)},
+     * handing the programs to a listener while days are fetched.
+     */
+    private ScheduleColumns schedule(int id, LocalDateTime from,
+                                     LocalDateTime to, boolean refresh,
+                                     Consumer<List<Program>> progress)
+            throws SAXException, ParserConfigurationException, IOException {
+
+        long fetched = planner.getDaysFetched();
+        var programs = planner.schedule(id, from, to, refresh, progress);
+
+        if (planner.getDaysFetched() != fetched) {
+            saveSoon();
+        }
+        return programs;
     }
 
     /**
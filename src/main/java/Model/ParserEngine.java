@@ -0,0 +1,68 @@
+package Model;
+
+/**
+ * The available parsing strategies. The engine can be chosen with the system
+ * property {@code radioinfo.parser}, for example {@code -Dradioinfo.parser=dom}.
+ * Streaming xml is used by default. The json engine also switches the wire
+ * format, the API is asked for json instead of xml.
+ */
+enum ParserEngine {
+
+    /** Builds a full document tree before reading it */
+    DOM,
+
+    /** Pull parser, reads the data in one forward pass */
+    STAX,
+
+    /** Streaming json reader, requests the json format from the API */
+    JSON;
+
+    static final String PROPERTY = "radioinfo.parser";
+
+    /**
+     * @return a new decoder for this engine
+     */
+    Decoder createDecoder() {
+
+        switch (this) {
+
+            case DOM:
+                return new DomDecoder();
+            case JSON:
+                return new JsonDecoder();
+            default:
+                return new StaxDecoder();
+        }
+    }
+
+    /**
+     * @return query parameter selecting the wire format, appended to every
+     * request url
+     */
+    String formatParameter() {
+
+        return this == JSON ? "&format=json" : "";
+    }
+
+    /**
+     * Reads the engine from the system property, falls back to
+     * {@link #STAX} if the property is missing or unknown.
+     * @return the configured engine
+     */
+    static ParserEngine fromProperty() {
+
+        String value = System.getProperty(PROPERTY);
+
+        if (value != null) {
+            for (ParserEngine engine : values()) {
+
+                if (engine.name().equalsIgnoreCase(value.trim())) {
+                    return engine;
+                }
+            }
+            System.err.println("Unknown parser engine " + value
+                    + ", using " + STAX);
+        }
+        return STAX;
+    }
+}
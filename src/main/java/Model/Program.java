@@ -1,48 +1,34 @@
 package Model;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.net.URL;
 import java.time.LocalDateTime;
 
 /**
- * This class holds information about a Program
+ * This class holds information about a Program. A program is a light view
+ * of one row in a {@link ScheduleColumns}, the data itself is stored in the
+ * columns.
  */
 
 public class Program {
 
-    private String title;
-    private String description;
-    private LocalDateTime startTime;
-    private LocalDateTime endTime;
-    private String imageUrl;
-    private int id;
+    private final ScheduleColumns columns;
+    private final int row;
 
     /**
      * Constructor
-     * @param id id of program
-     * @param title title of program
-     * @param description description of program
-     * @param imageUrl Url for image corresponding to program
-     * @param startTime start time of program
-     * @param endTime end time of program
+     * @param columns the schedule holding the program
+     * @param row row of the program in the schedule
      */
-    public Program(int id, String title, String description, String imageUrl,
-                   LocalDateTime startTime, LocalDateTime endTime){
-
-        this.id = id;
-        this.title = title;
-        this.description = description;
-        this.imageUrl = imageUrl;
-        this.startTime = startTime;
-        this.endTime = endTime;
+    Program(ScheduleColumns columns, int row) {
 
+        this.columns = columns;
+        this.row = row;
     }
 
     public int getId() {
-        return id;
+        return columns.idAt(row);
     }
 
     /**
@@ -50,7 +36,7 @@ public class Program {
      * @return program title
      */
     public String getTitle() {
-        return title;
+        return columns.titleAt(row);
     }
 
     /**
@@ -58,7 +44,7 @@ public class Program {
      * @return program description
      */
     public String getDescription() {
-        return description;
+        return columns.descriptionAt(row);
     }
 
     /**
@@ -66,7 +52,7 @@ public class Program {
      * @return program start time
      */
     public LocalDateTime getStartTime() {
-        return startTime;
+        return ScheduleColumns.toLocalDateTime(columns.startAt(row));
     }
 
     /**
@@ -74,22 +60,46 @@ public class Program {
      * @return program end time
      */
     public LocalDateTime getEndTime() {
-        return endTime;
+        return ScheduleColumns.toLocalDateTime(columns.endAt(row));
     }
 
     /**
-     * Gets the image from an URL
+     *
+     * @return url of the program image, may be null
+     */
+    String getImageUrl() {
+        return columns.imageUrlAt(row);
+    }
+
+    /**
+     * Gets the image from an URL, through the shared image cache
      * @return ImageIcon holding the image for a program
      */
     public ImageIcon getImage() {
 
+        return getImage(0, 0);
+    }
+
+    /**
+     * Gets the image from an URL, decoded at the given size. Should be
+     * called off the Event Dispatch Thread.
+     * @param width width in pixels, 0 for the original size
+     * @param height height in pixels, 0 for the original size
+     * @return ImageIcon holding the image for a program
+     */
+    public ImageIcon getImage(int width, int height) {
+
         ImageIcon imageIcon = null;
 
         try {
+            String imageUrl = getImageUrl();
             if(imageUrl != null) {
-                URL url = new URL(imageUrl);
-                BufferedImage image = ImageIO.read(url);
-                imageIcon = new ImageIcon(image);
+
+                BufferedImage image = ImageCache.getInstance().get(imageUrl,
+                        width, height);
+                if (image != null) {
+                    imageIcon = new ImageIcon(image);
+                }
 
             }
 
@@ -0,0 +1,306 @@
+package Model;
+
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * In-memory cache of fetched schedules, keyed by channel id and the dates
+ * the schedule covers, one day per entry as planned by
+ * {@link FetchPlanner}. Entries expire after a time to live and the least
+ * recently used entries are evicted when either the number of entries or
+ * the approximate number of bytes held goes over its limit. An expired
+ * entry is kept as a stale copy until it is replaced or evicted, so it can
+ * be shown while the schedule is fetched again. When fetching it again
+ * fails, the next attempt is put off, twice as long after each failure in
+ * a row, up to the time to live.
+ * <p>
+ * Limits are read from the system properties {@code radioinfo.cache.ttl}
+ * (seconds), {@code radioinfo.cache.maxEntries} and
+ * {@code radioinfo.cache.maxBytes}. Hits, misses and evictions are counted
+ * in {@link Metrics} as {@code schedule.cache.hits},
+ * {@code schedule.cache.misses} and {@code schedule.cache.evictions}.
+ */
+class ScheduleCache {
+
+    private static final Metrics.Counter HITS =
+            Metrics.getInstance().counter("schedule.cache.hits");
+    private static final Metrics.Counter MISSES =
+            Metrics.getInstance().counter("schedule.cache.misses");
+    private static final Metrics.Counter EVICTIONS =
+            Metrics.getInstance().counter("schedule.cache.evictions");
+
+    //first wait before an expired entry is fetched again after a failure
+    private static final long RETRY_MILLIS = 30_000;
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long bytes;
+
+    /**
+     * Constructor, uses the limits from the system properties.
+     */
+    ScheduleCache() {
+
+        this(Long.getLong("radioinfo.cache.ttl", 600) * 1000,
+                Integer.getInteger("radioinfo.cache.maxEntries", 256),
+                Long.getLong("radioinfo.cache.maxBytes", 8L << 20));
+    }
+
+    /**
+     * Constructor
+     * @param ttlMillis how long an entry is valid
+     * @param maxEntries max number of entries
+     * @param maxBytes max approximate size of all entries
+     */
+    ScheduleCache(long ttlMillis, int maxEntries, long maxBytes) {
+
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param key schedule key
+     * @return the cached programs, or null if missing or expired
+     */
+    synchronized ScheduleColumns get(Key key) {
+
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            MISSES.increment();
+            return null;
+        }
+
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            MISSES.increment();
+            return null;
+        }
+
+        HITS.increment();
+        return entry.programs;
+    }
+
+    /**
+     * Looks at an entry without counting a hit or miss and without
+     * removing it if it has expired.
+     * @param key schedule key
+     * @return the cached programs, or null if missing or expired
+     */
+    synchronized ScheduleColumns peek(Key key) {
+
+        Entry entry = entries.get(key);
+
+        return entry == null || System.currentTimeMillis() >= entry.expiresAt
+                ? null : entry.programs;
+    }
+
+    /**
+     * Looks at an entry even if it has expired, without counting a hit or
+     * miss.
+     * @param key schedule key
+     * @return the cached programs, or null if missing
+     */
+    synchronized ScheduleColumns stale(Key key) {
+
+        Entry entry = entries.get(key);
+
+        return entry == null ? null : entry.programs;
+    }
+
+    /**
+     * @param key schedule key
+     * @return when the entry should be fetched again in epoch milliseconds,
+     * which is when it expires or, after failed attempts, when it is next
+     * retried, 0 if there is no such entry
+     */
+    synchronized long refreshAt(Key key) {
+
+        Entry entry = entries.get(key);
+
+        return entry == null ? 0 : Math.max(entry.expiresAt, entry.retryAt);
+    }
+
+    /**
+     * @param key schedule key
+     * @return true if fetching the entry failed and it is not time to
+     * retry it yet
+     */
+    synchronized boolean retryPending(Key key) {
+
+        Entry entry = entries.get(key);
+
+        return entry != null && System.currentTimeMillis() < entry.retryAt;
+    }
+
+    /**
+     * Puts off fetching an entry again after an attempt failed, so an
+     * expired entry is not retried at once while the API is unreachable.
+     * The wait doubles with each failure until the entry is replaced.
+     * @param key schedule key
+     */
+    synchronized void retryLater(Key key) {
+
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            return;
+        }
+
+        long wait = RETRY_MILLIS << Math.min(entry.failures, 20);
+        entry.failures++;
+        entry.retryAt = System.currentTimeMillis()
+                + Math.min(wait, Math.max(ttlMillis, RETRY_MILLIS));
+    }
+
+    /**
+     * Stores a schedule, replacing any previous entry for the key.
+     * @param key schedule key
+     * @param programs the programs
+     */
+    synchronized void put(Key key, ScheduleColumns programs) {
+
+        put(key, programs, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores a schedule fetched at an earlier time, such as one read from
+     * disk. It expires a time to live after it was fetched, which may
+     * already have passed.
+     * @param key schedule key
+     * @param programs the programs
+     * @param fetchedAt when the schedule was fetched, in epoch milliseconds
+     */
+    synchronized void put(Key key, ScheduleColumns programs, long fetchedAt) {
+
+        remove(key);
+
+        Entry entry = new Entry(programs, fetchedAt + ttlMillis);
+        entries.put(key, entry);
+        bytes += entry.size;
+
+        Iterator<Map.Entry<Key, Entry>> eldest =
+                entries.entrySet().iterator();
+
+        while ((entries.size() > maxEntries || bytes > maxBytes)
+                && entries.size() > 1) {
+
+            bytes -= eldest.next().getValue().size;
+            eldest.remove();
+            EVICTIONS.increment();
+        }
+    }
+
+    /**
+     * @return a copy of every entry that has not expired
+     */
+    synchronized Map<Key, ScheduleColumns> snapshot() {
+
+        long now = System.currentTimeMillis();
+        var copy = new LinkedHashMap<Key, ScheduleColumns>();
+
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+
+            if (now < e.getValue().expiresAt) {
+                copy.put(e.getKey(), e.getValue().programs);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    synchronized void clear() {
+
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void remove(Key key) {
+
+        Entry old = entries.remove(key);
+
+        if (old != null) {
+            bytes -= old.size;
+        }
+    }
+
+    /**
+     * Identifies a schedule, a channel and the first and last date fetched.
+     */
+    static final class Key {
+
+        private final int channelId;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        Key(int channelId, LocalDate from, LocalDate to) {
+            this.channelId = channelId;
+            this.from = from;
+            this.to = to;
+        }
+
+        int getChannelId() {
+            return channelId;
+        }
+
+        LocalDate getFrom() {
+            return from;
+        }
+
+        LocalDate getTo() {
+            return to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return channelId == key.channelId && from.equals(key.from)
+                    && to.equals(key.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(channelId, from, to);
+        }
+
+        @Override
+        public String toString() {
+            return channelId + " " + from + ".." + to;
+        }
+    }
+
+    /**
+     * A cached schedule.
+     */
+    private static final class Entry {
+
+        private final ScheduleColumns programs;
+        private final long expiresAt;
+        private final long size;
+
+        //failed attempts to fetch the entry again, and when to try next
+        private int failures;
+        private long retryAt;
+
+        Entry(ScheduleColumns programs, long expiresAt) {
+            this.programs = programs;
+            this.expiresAt = expiresAt;
+            this.size = programs.estimateBytes();
+        }
+    }
+}
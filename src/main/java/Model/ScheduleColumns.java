@@ -0,0 +1,499 @@
+package Model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The programs of one schedule stored column by column. Start and end
+ * times are epoch seconds in parallel {@code long} arrays, ids and text are
+ * {@code int} arrays where the text columns index into the
+ * {@link StringPool} the columns were built with. {@link Program} objects
+ * are light views of one row, created when a program is handed out.
+ * <p>
+ * Rows are sorted by start time when the columns are built, and a running
+ * maximum of the end times is kept next to them. Both are non-decreasing,
+ * so the programs in a time window or airing at an instant are found with
+ * two binary searches instead of a scan of the whole schedule.
+ * <p>
+ * Times are kept as the local date times the parser produces, converted to
+ * epoch seconds at offset zero.
+ */
+final class ScheduleColumns {
+
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    //with a pool of its own, so it does not keep a shared pool alive
+    static final ScheduleColumns EMPTY = new Builder(new StringPool())
+            .build();
+
+    private final StringPool pool;
+    private final int size;
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] ids;
+    private final int[] titles;
+    private final int[] descriptions;
+    private final int[] images;
+    private final long[] maxEnds;
+
+    /**
+     * Constructor
+     * @param builder builder holding the rows
+     * @param from first row of the builder to copy
+     * @param to row after the last one to copy
+     */
+    private ScheduleColumns(Builder builder, int from, int to) {
+
+        pool = builder.pool;
+        size = to - from;
+
+        int[] order = sortedOrder(builder.starts, from, to);
+
+        starts = reorder(builder.starts, order, from, size);
+        ends = reorder(builder.ends, order, from, size);
+        ids = reorder(builder.ids, order, from, size);
+        titles = reorder(builder.titles, order, from, size);
+        descriptions = reorder(builder.descriptions, order, from, size);
+        images = reorder(builder.images, order, from, size);
+
+        maxEnds = new long[size];
+        long max = Long.MIN_VALUE;
+
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+
+    /**
+     * @return number of programs
+     */
+    int size() {
+        return size;
+    }
+
+    long startAt(int row) {
+        return starts[row];
+    }
+
+    long endAt(int row) {
+        return ends[row];
+    }
+
+    int idAt(int row) {
+        return ids[row];
+    }
+
+    String titleAt(int row) {
+        return pool.get(titles[row]);
+    }
+
+    String descriptionAt(int row) {
+        return pool.get(descriptions[row]);
+    }
+
+    String imageUrlAt(int row) {
+        return pool.get(images[row]);
+    }
+
+    /**
+     * @param row row index
+     * @return a program viewing the row
+     */
+    Program get(int row) {
+
+        return new Program(this, row);
+    }
+
+    /**
+     * @param time epoch second
+     * @return index of the first row starting at or after the time, the
+     * size if there is none
+     */
+    int firstStartingAt(long time) {
+
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+
+            if (starts[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param from first epoch second of the window
+     * @param to epoch second after the window
+     * @return programs starting inside {@code [from, to)}, by start time
+     */
+    ArrayList<Program> starting(long from, long to) {
+
+        var programs = new ArrayList<Program>();
+
+        for (int i = firstStartingAt(from); i < size && starts[i] < to; i++) {
+            programs.add(get(i));
+        }
+        return programs;
+    }
+
+    /**
+     * Programs that are on air at some point in {@code [from, to)}. Rows
+     * before the first row whose running end maximum passes {@code from}
+     * all end before the window, rows from the first start at or after
+     * {@code to} all begin after it. Only the rows in between are looked at.
+     * @param from first epoch second of the window
+     * @param to epoch second after the window
+     * @return the overlapping programs, by start time
+     */
+    ArrayList<Program> overlapping(long from, long to) {
+
+        var programs = new ArrayList<Program>();
+        int end = firstStartingAt(to);
+
+        for (int i = firstEndingAfter(from); i < end; i++) {
+
+            if (ends[i] > from) {
+                programs.add(get(i));
+            }
+        }
+        return programs;
+    }
+
+    /**
+     * @param time epoch second
+     * @return the program on air at the time, the one that started last if
+     * programs overlap, or null if nothing is on air
+     */
+    Program at(long time) {
+
+        int first = firstEndingAfter(time);
+
+        for (int i = firstStartingAt(time + 1) - 1; i >= first; i--) {
+
+            if (ends[i] > time) {
+                return get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return epoch second of the first start, {@link #NO_TIME} if empty
+     */
+    long firstStart() {
+
+        return size == 0 ? NO_TIME : starts[0];
+    }
+
+    /**
+     * @return the latest end time, {@link #NO_TIME} if empty
+     */
+    long lastEnd() {
+
+        return size == 0 ? NO_TIME : maxEnds[size - 1];
+    }
+
+    /**
+     * Merges schedules into one, for example the days of a longer window.
+     * A program sent in more than one part, with the same id and start
+     * time, is kept once. Parts built with different pools are merged into
+     * the current shared pool, since the pool of a part may already have
+     * been replaced and must not grow any further.
+     * @param parts the schedules
+     * @return the merged schedule
+     */
+    static ScheduleColumns merge(List<ScheduleColumns> parts) {
+
+        if (parts.isEmpty()) {
+            return EMPTY;
+        }
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+
+        StringPool pool = parts.get(0).pool;
+
+        for (ScheduleColumns part : parts) {
+
+            if (part.pool != pool) {
+                pool = StringPool.getInstance();
+                break;
+            }
+        }
+
+        var all = new Builder(pool);
+
+        for (ScheduleColumns part : parts) {
+            for (int i = 0; i < part.size; i++) {
+                all.add(part, i);
+            }
+        }
+
+        ScheduleColumns sorted = all.build();
+        var merged = new Builder(sorted.pool);
+
+        for (int i = 0; i < sorted.size; i++) {
+
+            if (!sorted.repeatsEarlierRow(i)) {
+                merged.add(sorted, i);
+            }
+        }
+        return merged.size() == sorted.size ? sorted : merged.build();
+    }
+
+    /**
+     * @return views of every row
+     */
+    ArrayList<Program> programs() {
+
+        var programs = new ArrayList<Program>(size);
+
+        for (int i = 0; i < size; i++) {
+            programs.add(get(i));
+        }
+        return programs;
+    }
+
+    /**
+     * Size of the columns on the heap. Pooled strings are shared and not
+     * counted.
+     * @return approximate size in bytes
+     */
+    long estimateBytes() {
+
+        return 64 + 7 * 16 + size * (8L + 8L + 8L + 4L * 4);
+    }
+
+    /**
+     * @return true if an earlier row with the same start has the same id
+     */
+    private boolean repeatsEarlierRow(int row) {
+
+        for (int i = row - 1; i >= 0 && starts[i] == starts[row]; i--) {
+
+            if (ids[i] == ids[row]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param time epoch second
+     * @return index of the first row whose running end maximum is after the
+     * time
+     */
+    private int firstEndingAfter(long time) {
+
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+
+            int mid = (low + high) >>> 1;
+
+            if (maxEnds[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return indexes of the rows {@code [from, to)} in order of start
+     * time, null if the rows are already in order
+     */
+    private static int[] sortedOrder(long[] starts, int from, int to) {
+
+        for (int i = from + 1; i < to; i++) {
+
+            if (starts[i] < starts[i - 1]) {
+                return IntStream.range(from, to).boxed()
+                        .sorted(Comparator.comparingLong(row -> starts[row]))
+                        .mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies rows of a builder column, starting at {@code from} or in the
+     * given order.
+     */
+    private static long[] reorder(long[] column, int[] order, int from,
+                                  int size) {
+
+        if (order == null) {
+            return Arrays.copyOfRange(column, from, from + size);
+        }
+        long[] sorted = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = column[order[i]];
+        }
+        return sorted;
+    }
+
+    private static int[] reorder(int[] column, int[] order, int from,
+                                 int size) {
+
+        if (order == null) {
+            return Arrays.copyOfRange(column, from, from + size);
+        }
+        int[] sorted = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            sorted[i] = column[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * @param time a local date time, may be null
+     * @return the epoch second of the time at offset zero
+     */
+    static long toEpochSecond(LocalDateTime time) {
+
+        return time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * @param seconds epoch second from a column
+     * @return the local date time, null for {@link #NO_TIME}
+     */
+    static LocalDateTime toLocalDateTime(long seconds) {
+
+        return seconds == NO_TIME ? null
+                : LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Collects rows and builds the columns.
+     */
+    static final class Builder {
+
+        private final StringPool pool;
+        private int size;
+        private long[] starts = new long[16];
+        private long[] ends = new long[16];
+        private int[] ids = new int[16];
+        private int[] titles = new int[16];
+        private int[] descriptions = new int[16];
+        private int[] images = new int[16];
+
+        Builder() {
+
+            this(StringPool.getInstance());
+        }
+
+        Builder(StringPool pool) {
+
+            this.pool = pool;
+        }
+
+        /**
+         * Adds a program.
+         * @return this builder
+         */
+        Builder add(int id, String title, String description, String imageUrl,
+                    LocalDateTime startTime, LocalDateTime endTime) {
+
+            return add(id, title, description, imageUrl,
+                    toEpochSecond(startTime), toEpochSecond(endTime));
+        }
+
+        /**
+         * Adds a program with times in epoch seconds.
+         * @return this builder
+         */
+        Builder add(int id, String title, String description, String imageUrl,
+                    long startTime, long endTime) {
+
+            if (size == ids.length) {
+                grow();
+            }
+
+            starts[size] = startTime;
+            ends[size] = endTime;
+            ids[size] = id;
+            titles[size] = pool.intern(title);
+            descriptions[size] = pool.intern(description);
+            images[size] = pool.intern(imageUrl);
+            size++;
+
+            return this;
+        }
+
+        /**
+         * Adds a row of other columns, copying the string indexes when the
+         * columns share this pool.
+         */
+        private void add(ScheduleColumns columns, int row) {
+
+            if (columns.pool != pool) {
+                add(columns.ids[row], columns.titleAt(row),
+                        columns.descriptionAt(row), columns.imageUrlAt(row),
+                        columns.starts[row], columns.ends[row]);
+                return;
+            }
+
+            if (size == ids.length) {
+                grow();
+            }
+
+            starts[size] = columns.starts[row];
+            ends[size] = columns.ends[row];
+            ids[size] = columns.ids[row];
+            titles[size] = columns.titles[row];
+            descriptions[size] = columns.descriptions[row];
+            images[size] = columns.images[row];
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        ScheduleColumns build() {
+
+            return new ScheduleColumns(this, 0, size);
+        }
+
+        /**
+         * Copies some of the rows added so far into columns of their own,
+         * sharing this pool, so the text is not interned again.
+         * @param from first row
+         * @param to row after the last one
+         * @return the rows, sorted by start time
+         */
+        ScheduleColumns rows(int from, int to) {
+
+            return new ScheduleColumns(this, from, to);
+        }
+
+        private void grow() {
+
+            int capacity = ids.length * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+            images = Arrays.copyOf(images, capacity);
+        }
+    }
+}
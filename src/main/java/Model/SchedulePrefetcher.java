@@ -0,0 +1,95 @@
+package Model;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the schedules of many channels in the background with a bounded
+ * number of worker threads. The number of workers is read from the system
+ * property {@code radioinfo.prefetch.parallelism}, 0 turns prefetching off.
+ * The wall time of each prefetch is recorded in the {@link Metrics} timer
+ * {@code prefetch.wall}.
+ */
+class SchedulePrefetcher {
+
+    static final String PROPERTY = "radioinfo.prefetch.parallelism";
+
+    private static final Metrics.Timer WALL =
+            Metrics.getInstance().timer("prefetch.wall");
+
+    /**
+     * Loads and stores the schedule for one channel.
+     */
+    interface Loader {
+
+        void load(int channelId) throws Exception;
+    }
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor, uses the parallelism from the system property.
+     */
+    SchedulePrefetcher() {
+
+        this(Integer.getInteger(PROPERTY, 4));
+    }
+
+    /**
+     * Constructor
+     * @param parallelism max number of schedules loaded at the same time
+     */
+    SchedulePrefetcher(int parallelism) {
+
+        if (parallelism > 0) {
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable,
+                        "schedule-prefetch-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Starts loading the schedules of the given channels and returns
+     * immediately. Failures for single channels are logged and do not stop
+     * the others.
+     *
+     * @param channelIds ids of the channels to load
+     * @param loader loads one schedule
+     * @return a future completed when every channel has been tried
+     */
+    CompletableFuture<Void> prefetch(List<Integer> channelIds, Loader loader) {
+
+        if (executor == null || channelIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long start = WALL.start();
+        var tasks = new CompletableFuture<?>[channelIds.size()];
+
+        for (int i = 0; i < tasks.length; i++) {
+
+            int id = channelIds.get(i);
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    loader.load(id);
+
+                } catch (Exception e) {
+                    System.err.println("Error prefetching programs for "
+                            + "channel " + id + " " + e.toString());
+                }
+            }, executor);
+        }
+
+        return CompletableFuture.allOf(tasks).thenRun(() -> WALL.stop(start));
+    }
+}
@@ -0,0 +1,346 @@
+package Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the latest channels and schedules on disk so that a restart can
+ * show them before the network has answered.
+ * <p>
+ * The file holds a header with magic number and version, a table of every
+ * distinct string, the channels and then one block of fixed size program
+ * records per schedule. Times are stored as epoch seconds, copied straight
+ * from the schedule columns, and strings as indexes into the table. A
+ * CRC32 of the content ends the file. The file is written to a temporary
+ * file first and then moved in place, so a crash never leaves a half
+ * written store behind. Reading loads the whole file into a heap buffer in
+ * one read. A mapping would keep the file locked on Windows until it is
+ * collected, so the next save could not replace it.
+ * <p>
+ * The folder is read from the system property {@code radioinfo.store.dir},
+ * by default {@code .radioinfo} in the home folder.
+ */
+class ScheduleStore {
+
+    private static final int MAGIC = 0x52494E46;
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "schedules.bin";
+
+    private static final int NO_STRING = -1;
+
+    private final Path file;
+
+    /**
+     * Constructor, uses the folder from the system property.
+     */
+    ScheduleStore() {
+
+        this(Paths.get(System.getProperty("radioinfo.store.dir",
+                Paths.get(System.getProperty("user.home"), ".radioinfo")
+                        .toString())));
+    }
+
+    /**
+     * Constructor
+     * @param directory folder where the store file is kept
+     */
+    ScheduleStore(Path directory) {
+
+        file = directory.resolve(FILE_NAME);
+    }
+
+    /**
+     * Writes channels and schedules to disk, replacing the previous file.
+     * @param channels the channels
+     * @param schedules schedules by key
+     * @throws IOException if the file could not be written
+     */
+    synchronized void save(List<Channel> channels,
+                           Map<ScheduleCache.Key, ScheduleColumns> schedules)
+            throws IOException {
+
+        var strings = new StringTable();
+        var body = new Buffer();
+
+        body.putInt(channels.size());
+
+        for (Channel c : channels) {
+
+            body.putInt(c.getId());
+            body.putInt(strings.index(c.getName()));
+            body.putInt(strings.index(c.getImageUrl()));
+        }
+
+        body.putInt(schedules.size());
+
+        for (var entry : schedules.entrySet()) {
+
+            ScheduleCache.Key key = entry.getKey();
+            ScheduleColumns programs = entry.getValue();
+
+            body.putInt(key.getChannelId());
+            body.putLong(key.getFrom().toEpochDay());
+            body.putLong(key.getTo().toEpochDay());
+            body.putInt(programs.size());
+
+            for (int i = 0; i < programs.size(); i++) {
+
+                body.putLong(programs.startAt(i));
+                body.putLong(programs.endAt(i));
+                body.putInt(programs.idAt(i));
+                body.putInt(strings.index(programs.titleAt(i)));
+                body.putInt(strings.index(programs.descriptionAt(i)));
+                body.putInt(strings.index(programs.imageUrlAt(i)));
+            }
+        }
+
+        var content = new Buffer();
+        content.putInt(MAGIC);
+        content.putInt(VERSION);
+        content.putLong(System.currentTimeMillis());
+        strings.writeTo(content);
+        content.put(body);
+
+        var crc = new CRC32();
+        crc.update(content.bytes, 0, content.size);
+        content.putLong(crc.getValue());
+
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+
+        try (FileChannel out = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer data = ByteBuffer.wrap(content.bytes, 0, content.size);
+            while (data.hasRemaining()) {
+                out.write(data);
+            }
+            out.force(true);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the store.
+     * @return the stored data, or null if there is no usable store
+     * @throws IOException if the file could not be read
+     */
+    synchronized Snapshot load() throws IOException {
+
+        ByteBuffer data;
+
+        try {
+            data = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        if (data.remaining() < 24 || data.getInt(0) != MAGIC) {
+            System.err.println("Ignoring unknown schedule store " + file);
+            return null;
+        }
+        if (data.getInt(4) != VERSION) {
+            System.err.println("Ignoring schedule store version "
+                    + data.getInt(4));
+            return null;
+        }
+
+        int end = data.limit() - 8;
+        var crc = new CRC32();
+        crc.update(data.duplicate().limit(end));
+
+        if (crc.getValue() != data.getLong(end)) {
+            System.err.println("Ignoring corrupt schedule store " + file);
+            return null;
+        }
+
+        long savedAt = data.getLong(8);
+        data.position(16);
+        String[] strings = readStrings(data);
+
+        var channels = new ArrayList<Channel>();
+        int channelCount = data.getInt();
+
+        for (int i = 0; i < channelCount; i++) {
+
+            int id = data.getInt();
+            String name = string(strings, data.getInt());
+            String imageUrl = string(strings, data.getInt());
+            channels.add(new Channel(id, name, imageUrl));
+        }
+
+        var schedules = new LinkedHashMap<ScheduleCache.Key,
+                ScheduleColumns>();
+        int scheduleCount = data.getInt();
+
+        for (int i = 0; i < scheduleCount; i++) {
+
+            var key = new ScheduleCache.Key(data.getInt(),
+                    LocalDate.ofEpochDay(data.getLong()),
+                    LocalDate.ofEpochDay(data.getLong()));
+            int programCount = data.getInt();
+            var programs = new ScheduleColumns.Builder();
+
+            for (int j = 0; j < programCount; j++) {
+
+                long start = data.getLong();
+                long endTime = data.getLong();
+                int id = data.getInt();
+                String title = string(strings, data.getInt());
+                String description = string(strings, data.getInt());
+                String imageUrl = string(strings, data.getInt());
+
+                programs.add(id, title, description, imageUrl, start,
+                        endTime);
+            }
+            schedules.put(key, programs.build());
+        }
+
+        return new Snapshot(savedAt, channels, schedules);
+    }
+
+    private static String[] readStrings(ByteBuffer data) {
+
+        String[] strings = new String[data.getInt()];
+
+        for (int i = 0; i < strings.length; i++) {
+
+            int length = data.getInt();
+            byte[] bytes = new byte[length];
+            data.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static String string(String[] strings, int index) {
+
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    /**
+     * Channels and schedules read from the store.
+     */
+    static class Snapshot {
+
+        private final long savedAt;
+        private final List<Channel> channels;
+        private final Map<ScheduleCache.Key, ScheduleColumns> schedules;
+
+        Snapshot(long savedAt, List<Channel> channels,
+                 Map<ScheduleCache.Key, ScheduleColumns> schedules) {
+            this.savedAt = savedAt;
+            this.channels = channels;
+            this.schedules = schedules;
+        }
+
+        /**
+         * @return when the store was written, in epoch milliseconds
+         */
+        long getSavedAt() {
+            return savedAt;
+        }
+
+        List<Channel> getChannels() {
+            return channels;
+        }
+
+        Map<ScheduleCache.Key, ScheduleColumns> getSchedules() {
+            return schedules;
+        }
+    }
+
+    /**
+     * Shared table of strings, each distinct string is written once.
+     */
+    private static class StringTable {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int index(String s) {
+
+            if (s == null) {
+                return NO_STRING;
+            }
+            return indexes.computeIfAbsent(s, key -> {
+                strings.add(key);
+                return strings.size() - 1;
+            });
+        }
+
+        void writeTo(Buffer out) {
+
+            out.putInt(strings.size());
+
+            for (String s : strings) {
+
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.put(bytes, bytes.length);
+            }
+        }
+    }
+
+    /**
+     * Growable big endian byte buffer.
+     */
+    private static class Buffer {
+
+        private byte[] bytes = new byte[4096];
+        private int size;
+
+        void putInt(int v) {
+
+            ensure(4);
+            ByteBuffer.wrap(bytes, size, 4).putInt(v);
+            size += 4;
+        }
+
+        void putLong(long v) {
+
+            ensure(8);
+            ByteBuffer.wrap(bytes, size, 8).putLong(v);
+            size += 8;
+        }
+
+        void put(byte[] data, int length) {
+
+            ensure(length);
+            System.arraycopy(data, 0, bytes, size, length);
+            size += length;
+        }
+
+        void put(Buffer other) {
+
+            put(other.bytes, other.size);
+        }
+
+        private void ensure(int extra) {
+
+            if (size + extra > bytes.length) {
+                bytes = java.util.Arrays.copyOf(bytes,
+                        Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package Model;
+
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decodes xml with a pull parser in one forward pass. No document tree is
+ * built, each channel or program is created as soon as its closing tag is
+ * reached, and can be handed to a listener right away.
+ */
+class StaxDecoder implements Decoder {
+
+    private static final XMLInputFactory FACTORY = createFactory();
+
+    @Override
+    public ArrayList<Channel> channels(InputStream in) throws SAXException {
+
+        ArrayList<Channel> channels = new ArrayList<>();
+        XMLStreamReader reader = null;
+
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+
+            int id = 0;
+            String name = null;
+            String imageUrl = null;
+            boolean inChannel = false;
+
+            while (reader.hasNext()) {
+
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+
+                    String tag = reader.getLocalName();
+
+                    if (!inChannel && tag.equals("channel")) {
+
+                        inChannel = true;
+                        id = Integer.parseInt(
+                                reader.getAttributeValue(null, "id"));
+                        name = reader.getAttributeValue(null, "name");
+                        imageUrl = null;
+                    }
+                    else if (inChannel && imageUrl == null
+                            && tag.equals("image")) {
+
+                        imageUrl = reader.getElementText();
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT && inChannel
+                        && reader.getLocalName().equals("channel")) {
+
+                    channels.add(new Channel(id, name, imageUrl));
+                    inChannel = false;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
+        } finally {
+            close(reader);
+        }
+
+        return channels;
+    }
+
+    @Override
+    public ScheduleColumns episodes(InputStream in) throws SAXException {
+
+        return episodes(in, null);
+    }
+
+    @Override
+    public ScheduleColumns episodes(InputStream in,
+                                    Consumer<List<Program>> progress)
+            throws SAXException {
+
+        var channelEpisodes = new ScheduleColumns.Builder();
+        var batches = new EpisodeBatches(channelEpisodes, progress);
+        XMLStreamReader reader = null;
+
+        try {
+            reader = FACTORY.createXMLStreamReader(in);
+
+            int id = 0;
+            String title = null;
+            String description = null;
+            String imageUrl = null;
+            LocalDateTime startTime = null;
+            LocalDateTime endTime = null;
+            boolean inEpisode = false;
+            boolean hasProgram = false;
+
+            while (reader.hasNext()) {
+
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+
+                    String tag = reader.getLocalName();
+
+                    if (!inEpisode) {
+
+                        if (tag.equals("scheduledepisode")) {
+
+                            inEpisode = true;
+                            hasProgram = false;
+                            id = 0;
+                            title = null;
+                            description = null;
+                            imageUrl = null;
+                            startTime = null;
+                            endTime = null;
+                        }
+                        continue;
+                    }
+
+                    //only the first occurrence of each tag counts, the same
+                    //way the DOM decoder picks item(0)
+                    switch (tag) {
+
+                        case "program":
+                            if (!hasProgram) {
+                                hasProgram = true;
+                                id = Integer.parseInt(
+                                        reader.getAttributeValue(null, "id"));
+                            }
+                            break;
+
+                        case "description":
+                            if (description == null) {
+                                description = reader.getElementText();
+                            }
+                            break;
+
+                        case "imageurl":
+                            if (imageUrl == null) {
+                                imageUrl = reader.getElementText();
+                            }
+                            break;
+
+                        case "title":
+                            if (title == null) {
+                                title = reader.getElementText();
+                            }
+                            break;
+
+                        case "starttimeutc":
+                            if (startTime == null) {
+                                startTime = XmlParser.formatDateTime(
+                                        reader.getElementText());
+                            }
+                            break;
+
+                        case "endtimeutc":
+                            if (endTime == null) {
+                                endTime = XmlParser.formatDateTime(
+                                        reader.getElementText());
+                            }
+                            break;
+
+                        default:
+                            break;
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT && inEpisode
+                        && reader.getLocalName().equals("scheduledepisode")) {
+
+                    batches.add(id, title, description, imageUrl,
+                            startTime, endTime);
+                    inEpisode = false;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
+        } finally {
+            close(reader);
+        }
+
+        batches.flush();
+        return channelEpisodes.build();
+    }
+
+    /**
+     * Creates the shared factory. Readers created from a configured factory
+     * are independent of each other, so one factory is enough.
+     * @return the factory
+     */
+    private static XMLInputFactory createFactory() {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                false);
+
+        return factory;
+    }
+
+    /**
+     * Closes the reader, the underlying stream is closed by the caller.
+     * @param reader the reader, may be null
+     */
+    private static void close(XMLStreamReader reader) {
+
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
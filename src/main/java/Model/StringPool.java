@@ -0,0 +1,91 @@
+package Model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pool of distinct strings shared by schedules. Titles, descriptions and
+ * image urls repeat across days and channels, each distinct string is
+ * stored once and referred to by its index.
+ * <p>
+ * A pool only grows, so the shared pool is replaced by a new one once it
+ * holds {@code radioinfo.strings.maxPooled} strings. Schedules keep the
+ * pool they were built with, so an old pool is collected once the last
+ * schedule using it has been evicted, and a long running process only
+ * holds the text of the schedules it still has.
+ */
+final class StringPool {
+
+    static final int NONE = -1;
+
+    private static final int MAX_POOLED = Integer.getInteger(
+            "radioinfo.strings.maxPooled", 32768);
+
+    private static final AtomicReference<StringPool> SHARED =
+            new AtomicReference<>(new StringPool());
+
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile String[] strings = new String[256];
+    private int size;
+
+    /**
+     * @return the pool new schedules are built with
+     */
+    static StringPool getInstance() {
+
+        return SHARED.get();
+    }
+
+    /**
+     * @param s a string, may be null
+     * @return index of the string in the pool, {@link #NONE} for null
+     */
+    int intern(String s) {
+
+        if (s == null) {
+            return NONE;
+        }
+
+        Integer index = indexes.get(s);
+
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+
+            index = indexes.get(s);
+
+            if (index != null) {
+                return index;
+            }
+
+            String[] current = strings;
+
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = s;
+            strings = current;
+            indexes.put(s, size);
+
+            //builders already holding this pool finish with it, new ones
+            //start the next pool
+            if (size + 1 == MAX_POOLED) {
+                SHARED.compareAndSet(this, new StringPool());
+            }
+            return size++;
+        }
+    }
+
+    /**
+     * @param index index returned by {@link #intern(String)}
+     * @return the string, null for {@link #NONE}
+     */
+    String get(int index) {
+
+        return index == NONE ? null : strings[index];
+    }
+}
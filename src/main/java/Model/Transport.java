@@ -0,0 +1,47 @@
+package Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * A transport opens response bodies from the API. The parser reads through
+ * a transport so that the way data is fetched can be replaced, for example
+ * to run against a local server. The transport can be chosen with the
+ * system property {@code radioinfo.transport}, either {@code http}
+ * (default) or {@code url}.
+ */
+interface Transport {
+
+    String PROPERTY = "radioinfo.transport";
+
+    /**
+     * Opens a stream to the given url. When conditional is true the
+     * transport may ask the server if the resource changed since it was last
+     * fetched, and returns null if it has not.
+     *
+     * @param url url to api
+     * @param conditional true if the caller still holds the previous result
+     * @return a stream of the response body, or null if not modified
+     * @throws IOException if the request failed
+     */
+    InputStream open(URL url, boolean conditional) throws IOException;
+
+    /**
+     * Reads the transport from the system property.
+     * @return the configured transport
+     */
+    static Transport fromProperty() {
+
+        String value = System.getProperty(PROPERTY, "http").trim();
+
+        if (value.equalsIgnoreCase("url")) {
+            return new UrlTransport();
+        }
+        if (!value.equalsIgnoreCase("http")) {
+            System.err.println("Unknown transport " + value
+                    + ", using http");
+        }
+        return new HttpClientTransport();
+    }
+}
@@ -0,0 +1,29 @@
+package Model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * The original transport, opens a new connection for every request and
+ * never revalidates. Uses the same timeout properties as
+ * {@link HttpClientTransport}, the request timeout bounds each read.
+ */
+class UrlTransport implements Transport {
+
+    private final int connectTimeout = Integer.getInteger(
+            "radioinfo.http.connectTimeout", 5000);
+    private final int readTimeout = Integer.getInteger(
+            "radioinfo.http.requestTimeout", 15000);
+
+    @Override
+    public InputStream open(URL url, boolean conditional) throws IOException {
+
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+
+        return connection.getInputStream();
+    }
+}
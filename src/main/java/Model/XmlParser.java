@@ -1,31 +1,98 @@
 package Model;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * This class is responsible for parsing xml-data retrieved from Sveriges
- * Radio API. Two main parsing methods, one for channels and one for
- * corresponding programs to the channels
+ * This class is responsible for parsing xml-data (or json-data, see
+ * {@link ParserEngine#JSON}) retrieved from Sveriges Radio API. Two main
+ * parsing methods, one for channels and one for corresponding programs to
+ * the channels. The actual decoding is done by the {@link Decoder} of the
+ * chosen {@link ParserEngine}, and responses are fetched through a
+ * {@link Transport}.
  */
 
 class XmlParser {
 
+    static final String DEFAULT_BASE_URL = "http://api.sr.se/api/v2/";
+
+    private static final int MAX_REMEMBERED = 128;
+
+    //time until the response starts, and reading plus decoding the body
+    private static final Metrics.Timer FETCH =
+            Metrics.getInstance().timer("api.fetch");
+    private static final Metrics.Timer PARSE =
+            Metrics.getInstance().timer("api.parse");
+    private static final Metrics.Counter NOT_MODIFIED =
+            Metrics.getInstance().counter("api.notModified");
+    private static final Metrics.Counter ERRORS =
+            Metrics.getInstance().counter("api.errors");
+
+    private final ParserEngine engine;
+    private final Decoder decoder;
+    private final Transport transport;
+    private final String baseUrl;
+    private final Map<String, Object> lastResults;
+
     /**
-     * Empty constructor
+     * Constructor, uses the parser engine, transport and API given by the
+     * system properties {@code radioinfo.parser}, {@code radioinfo.transport}
+     * and {@code radioinfo.api.baseUrl}.
      */
     public XmlParser() {
 
+        this(ParserEngine.fromProperty(), Transport.fromProperty(),
+                baseUrlFromProperty());
+    }
+
+    /**
+     * @return base url of the API from the system property
+     * {@code radioinfo.api.baseUrl}, such as a local stand-in server, or
+     * Sveriges Radio's API if it is not set
+     */
+    static String baseUrlFromProperty() {
+
+        String url = System.getProperty("radioinfo.api.baseUrl",
+                DEFAULT_BASE_URL).trim();
+
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    /**
+     * Constructor
+     * @param engine the engine used to parse responses
+     * @param transport the transport used to fetch responses
+     * @param baseUrl base url of the API, ending with a slash
+     */
+    XmlParser(ParserEngine engine, Transport transport, String baseUrl) {
+
+        this.engine = engine;
+        decoder = engine.createDecoder();
+        this.transport = transport;
+        this.baseUrl = baseUrl;
+
+        //results of the latest requests, returned again when the server
+        //says that a resource has not been modified
+        lastResults = Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, Object> eldest) {
+                        return size() > MAX_REMEMBERED;
+                    }
+                });
     }
 
     /**
@@ -35,171 +102,112 @@ class XmlParser {
      * @throws SAXException
      * @throws IOException
      */
+    @SuppressWarnings("unchecked")
     public ArrayList<Channel> channelParser() throws ParserConfigurationException,
             SAXException, IOException {
 
-        ArrayList<Channel> channels = new ArrayList<>();
-
-        URL url = new URL("http://api.sr.se/api/v2/channels?pagination=false");
-        Document doc = getDoc(url);
-
-        doc.getDocumentElement().normalize();
-        Element root = doc.getDocumentElement();
+        URL url = new URL(baseUrl + "channels?pagination=false"
+                + engine.formatParameter());
+        var previous = (ArrayList<Channel>) lastResults.get(url.toString());
 
-        NodeList channelList = root.getElementsByTagName("channel");
+        try (InputStream in = open(url, previous != null)) {
 
-        for (int i = 0; i < channelList.getLength(); i++) {
-
-            Element element = (Element) channelList.item(i);
-            String imageUrl = null;
-
-            var imageElement = element.getElementsByTagName(
-                    "image").item(0);
-
-            int id = Integer.parseInt(element.getAttribute("id"));
-            String name = element.getAttribute("name");
-            if (imageElement != null) {
-
-                imageUrl = imageElement.getTextContent();
+            if (in == null) {
+                return new ArrayList<>(previous);
             }
 
-            Channel channel = new Channel(id, name, imageUrl);
-            channels.add(channel);
+            long start = PARSE.start();
+            ArrayList<Channel> channels = decoder.channels(in);
+            PARSE.stop(start);
+            lastResults.put(url.toString(), channels);
 
+            return new ArrayList<>(channels);
         }
 
-        return channels;
-
     }
 
     /**
-     *
+     * Fetches the schedule of one channel for one calendar day. The url
+     * only depends on the channel and the date, so the server can answer
+     * a repeated request with "not modified".
      *
      * @param channelId id of channel
-     * @return returns a list of Program objects
+     * @param date the day to fetch
+     * @return returns the programs of the channel that day
      * @throws SAXException
      * @throws ParserConfigurationException
      * @throws IOException
      */
-    public ArrayList<Program> channelEpisodes(int channelId)
+    public ScheduleColumns channelEpisodes(int channelId, LocalDate date)
             throws SAXException, ParserConfigurationException, IOException {
 
-        ArrayList<Program> channelEpisodes = new ArrayList<>();
-        LocalDateTime timeNow = LocalDateTime.now();
-        LocalDateTime timeFrom = getTimeFrom(timeNow);
-        LocalDateTime timeTo = getTimeTo(timeNow);
-        URL url = new URL("http://api.sr.se/api/v2/scheduledepisodes?"
-                + "pagination=false&channelid=" + channelId + "&fromdate=" +
-                timeFrom + "&todate=" + timeTo);
-        Document doc = getDoc(url);
-
-        if (doc != null) {
-            doc.getDocumentElement().normalize();
-            Element root = doc.getDocumentElement();
-
-
-            NodeList episodeList =
-                    root.getElementsByTagName("scheduledepisode");
-
-            for (int i = 0; i < episodeList.getLength(); i++) {
-
-                Element element = (Element) episodeList.item(i);
-
-                int id = 0;
-                String title = null;
-                String description = null;
-                String imageUrl = null;
-                LocalDateTime startTime = null;
-                LocalDateTime endTime = null;
-
-                var elem1 = (Element)element.getElementsByTagName(
-                        "program").item(0);
-                var elem2 = element.getElementsByTagName(
-                        "description").item(0);
-                var elem3 = element.getElementsByTagName(
-                        "imageurl").item(0);
-                var elem4 = element.getElementsByTagName(
-                        "title").item(0);
-                var elem5 = element.getElementsByTagName(
-                        "starttimeutc").item(0);
-                var elem6 = element.getElementsByTagName(
-                        "endtimeutc").item(0);
-
-                if (elem1 != null){
-
-                    id = Integer.parseInt(elem1.getAttribute("id"));
-                }
-
-                if (elem2 != null) {
-
-                    description = elem2.getTextContent();
-                }
-                if (elem3 != null) {
-
-                    imageUrl = elem3.getTextContent();
-                }
-                if (elem4 != null) {
-
-                    title = elem4.getTextContent();
-                }
-                if (elem5 != null) {
-
-                    startTime = formatDateTime(elem5.getTextContent());
-                }
-                if (elem6 != null) {
-
-                    endTime = formatDateTime(elem6.getTextContent());
-                }
-
-
-                Program program = new Program(id, title, description, imageUrl,
-                        startTime, endTime);
-
-                channelEpisodes.add(program);
-
-            }
-        }
-        return channelEpisodes;
+        return channelEpisodes(channelId, date, null);
     }
 
     /**
-     * We want program information from now to 12 hours ahead of now.
-     * now and going 12 hours forward.
+     * Same as {@link #channelEpisodes(int, LocalDate)}, but also hands the
+     * programs to a listener while the response is decoded.
      *
-     * @param timeNow current time
-     * @return returns the end time
+     * @param channelId id of channel
+     * @param date the day to fetch
+     * @param progress receives the programs in batches as they are
+     *                 decoded, may be null
+     * @return returns the programs of the channel that day
+     * @throws SAXException
+     * @throws ParserConfigurationException
+     * @throws IOException
      */
-    private LocalDateTime getTimeTo(LocalDateTime timeNow) {
+    public ScheduleColumns channelEpisodes(int channelId, LocalDate date,
+                                           Consumer<List<Program>> progress)
+            throws SAXException, ParserConfigurationException, IOException {
 
-        LocalDateTime tmp = timeNow.plusHours(12);
+        URL url = new URL(baseUrl + "scheduledepisodes?"
+                + "pagination=false&channelid=" + channelId + "&date="
+                + date + engine.formatParameter());
+        var previous = (ScheduleColumns) lastResults.get(url.toString());
 
-        if(tmp.getDayOfMonth() == timeNow.getDayOfMonth()){
+        //a 304 from the server means the previous result is still valid and
+        //the response does not have to be parsed again
+        try (InputStream in = open(url, previous != null)) {
 
-            return timeNow;
-        }
+            if (in == null) {
 
-        else{
-            return tmp;
+                if (progress != null) {
+                    progress.accept(previous.programs());
+                }
+                return previous;
+            }
+
+            long start = PARSE.start();
+            ScheduleColumns episodes = progress == null
+                    ? decoder.episodes(in) : decoder.episodes(in, progress);
+            PARSE.stop(start);
+            lastResults.put(url.toString(), episodes);
+
+            return episodes;
         }
     }
 
     /**
-     * We want program information starting from 12 hours before now.
-     *
-     * @param timeNow current time
-     * @return returns the starting time
+     * Opens a response through the transport and records the time it took.
+     * @return the body, or null if the previous result is still valid
      */
-    private LocalDateTime getTimeFrom(LocalDateTime timeNow) {
+    private InputStream open(URL url, boolean revalidate) throws IOException {
 
-        LocalDateTime tmp = timeNow.minusHours(12);
+        long start = FETCH.start();
 
-        if(tmp.getDayOfMonth() == timeNow.getDayOfMonth()){
+        try {
+            InputStream in = transport.open(url, revalidate);
+            FETCH.stop(start);
 
-            return timeNow;
-        }
+            if (in == null) {
+                NOT_MODIFIED.increment();
+            }
+            return in;
 
-        else{
-            return tmp;
+        } catch (IOException e) {
+            ERRORS.increment();
+            throw e;
         }
     }
 
@@ -209,7 +217,7 @@ class XmlParser {
      * @param time the time string to be formatted
      * @return returns a formatted LocalDateTime
      */
-    private LocalDateTime formatDateTime(String time) {
+    static LocalDateTime formatDateTime(String time) {
         LocalDateTime localDateTime = null;
 
         if (time.contains("Z")) {
@@ -227,23 +235,4 @@ class XmlParser {
         return localDateTime;
     }
 
-    /**
-     * helper method which is responsible for opening up a stream to
-     * Sveriges Radio API and parsing that data.
-     *
-     * @param url url to api
-     * @return a document of parsed data from API
-     * @throws ParserConfigurationException
-     * @throws IOException
-     * @throws SAXException
-     */
-    private Document getDoc(URL url) throws ParserConfigurationException
-            , SAXException, IOException {
-
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-
-        return builder.parse(url.openStream());
-    }
-
 }
@@ -1,4 +1,6 @@
 import Controller.Controller;
+import Export.ExportCommand;
+import Server.ServerCommand;
 
 import javax.swing.*;
 
@@ -6,6 +8,16 @@ public class RadioInfo {
 
     public static void main(String[] args) {
 
+        //headless batch export, see ExportCommand for the options
+        if (ExportCommand.isExport(args)) {
+            System.exit(ExportCommand.run(args));
+        }
+
+        //local HTTP API, see ServerCommand for the options
+        if (ServerCommand.isServe(args)) {
+            System.exit(ServerCommand.run(args));
+        }
+
         SwingUtilities.invokeLater(() -> new Controller());
 
     }
@@ -0,0 +1,658 @@
+package Server;
+
+import Model.Model;
+import Model.Program;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local HTTP API serving channels and schedules from the {@link Model}
+ * caches, so many local clients share one set of upstream requests.
+ * <ul>
+ *     <li>{@code GET /channels} lists the channels</li>
+ *     <li>{@code GET /channels/{id}/schedule?from=&to=} lists the programs
+ *     of a channel overlapping the window, by default from 12 hours ago to
+ *     12 hours ahead. Times are ISO local dates or date times.</li>
+ *     <li>{@code GET /now} lists the program on air on each channel. The
+ *     channels are loaded in parallel, one that fails has a null program
+ *     and an error instead of failing the whole response.</li>
+ * </ul>
+ * Rendered responses are kept for a short time, read from the system
+ * property {@code radioinfo.server.cacheMillis}, so a burst of requests for
+ * the same url is answered from memory. Responses are cached by route and
+ * the parameters it reads, other parameters are ignored. Concurrent
+ * requests for a url that is not cached wait for one rendering. Responses
+ * carry an ETag, are gzip compressed when the client accepts it, and
+ * requests are handled by a bounded pool. When its queue is full a request
+ * is answered with 503 and {@code Retry-After} by a separate thread,
+ * without reading the model, so the accepting thread never waits for an
+ * upstream request.
+ */
+public class ApiServer {
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    //bodies smaller than this are not worth compressing
+    private static final int GZIP_MIN_BYTES = 256;
+
+    private static final int MAX_CACHED = 1024;
+
+    //seconds a client turned away with 503 is asked to wait
+    private static final String RETRY_AFTER = "1";
+
+    static {
+        //the JDK server writes headers and body separately, without this
+        //small responses wait for a delayed ACK. Read once, when the first
+        //server of the process is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Model model;
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor overflow;
+    private final ExecutorService upstream;
+    private final ThreadLocal<Boolean> rejecting = new ThreadLocal<>();
+    private final long cacheNanos;
+    private final Map<String, CompletableFuture<Response>> responses;
+
+    /**
+     * Constructor, the server is started with {@link #start()}.
+     * @param model model the data is read from, channels already loaded
+     * @param address address and port to listen on, port 0 for any
+     * @param threads number of request threads
+     * @throws IOException if the address could not be bound
+     */
+    public ApiServer(Model model, InetSocketAddress address, int threads)
+            throws IOException {
+
+        this.model = model;
+        cacheNanos = TimeUnit.MILLISECONDS.toNanos(
+                Long.getLong("radioinfo.server.cacheMillis", 1000));
+        responses = new ConcurrentHashMap<>();
+
+        //turns requests away when the pool is full. Answering only writes
+        //a short error, if even its queue is full that is done on the
+        //accepting thread.
+        overflow = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024),
+                runnable -> new Thread(runnable, "api-busy"),
+                (runnable, pool) -> runnable.run());
+
+        //loads the channels of /now in parallel. Its tasks never wait for
+        //request threads, so a request thread waiting for them can not
+        //deadlock.
+        AtomicInteger upstreamCount = new AtomicInteger();
+        upstream = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable,
+                    "api-upstream-" + upstreamCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60,
+                TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads * 64),
+                runnable -> new Thread(runnable,
+                        "api-" + count.incrementAndGet()),
+                (runnable, pool) -> overflow.execute(() -> reject(runnable)));
+
+        server = HttpServer.create(address, 256);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most the given time for open exchanges.
+     * @param delaySeconds max seconds to wait
+     */
+    public void stop(int delaySeconds) {
+
+        server.stop(delaySeconds);
+        executor.shutdown();
+        overflow.shutdown();
+        upstream.shutdown();
+    }
+
+    /**
+     * Runs an exchange the pool had no room for, answering it with 503.
+     */
+    private void reject(Runnable exchange) {
+
+        rejecting.set(Boolean.TRUE);
+
+        try {
+            exchange.run();
+        } finally {
+            rejecting.remove();
+        }
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+
+            if (rejecting.get() != null) {
+                exchange.getResponseHeaders().set("Retry-After",
+                        RETRY_AFTER);
+                sendError(exchange, 503, "Server busy");
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405, "Method not allowed");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+
+            try {
+                send(exchange, cached(cacheKey(path, query),
+                        () -> render(path, query)));
+
+            } catch (HttpError e) {
+                sendError(exchange, e.status, e.getMessage());
+
+            } catch (Exception e) {
+                System.err.println("Error serving " + (query == null ? path
+                        : path + "?" + query) + " " + e.toString());
+                sendError(exchange, 502, "Upstream request failed");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Builds the key a response is cached under from the parameters the
+     * route reads, so unknown, repeated or reordered parameters share one
+     * entry instead of each rendering the response again.
+     */
+    private static String cacheKey(String path, String query) {
+
+        if (!path.endsWith("/schedule")) {
+            return path;
+        }
+
+        Map<String, String> parameters = parseQuery(query);
+
+        return path + "?from=" + parseTime(parameters.get("from"), null)
+                + "&to=" + parseTime(parameters.get("to"), null);
+    }
+
+    /**
+     * Renders the body for a path.
+     */
+    private byte[] render(String path, String query) throws Exception {
+
+        String[] parts = path.split("/");
+
+        if (path.equals("/channels")) {
+            return channels();
+        }
+        if (path.equals("/now")) {
+            return now();
+        }
+        if (parts.length == 4 && parts[1].equals("channels")
+                && parts[3].equals("schedule")) {
+            return schedule(parts[2], parseQuery(query));
+        }
+        throw new HttpError(404, "Not found");
+    }
+
+    private byte[] channels() {
+
+        var json = new Json();
+        json.beginArray();
+
+        //by id, channels may share a name
+        for (int id : model.getChannelIds()) {
+
+            json.beginObject();
+            json.field("id", id);
+            json.field("name", model.getChannelName(id));
+            json.endObject();
+        }
+        json.endArray();
+
+        return json.toBytes();
+    }
+
+    private byte[] schedule(String idText, Map<String, String> query)
+            throws Exception {
+
+        int id;
+
+        try {
+            id = Integer.parseInt(idText);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Unknown channel " + idText);
+        }
+
+        if (model.getChannelName(id) == null) {
+            throw new HttpError(404, "Unknown channel " + id);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = parseTime(query.get("from"),
+                now.minusHours(12));
+        LocalDateTime to = parseTime(query.get("to"), now.plusHours(12));
+
+        if (!to.isAfter(from)) {
+            throw new HttpError(400, "to must be after from");
+        }
+        if (from.plusDays(31).isBefore(to)) {
+            throw new HttpError(400, "The window is at most 31 days");
+        }
+
+        var json = new Json();
+        json.beginArray();
+
+        for (Program p : model.fetchPrograms(id, from, to)) {
+            program(json, p);
+        }
+        json.endArray();
+
+        return json.toBytes();
+    }
+
+    private byte[] now() {
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> ids = model.getChannelIds();
+        var onAir = new ArrayList<CompletableFuture<Program>>();
+
+        for (int id : ids) {
+
+            onAir.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return model.fetchProgramAt(id, now);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, upstream));
+        }
+
+        var json = new Json();
+        json.beginArray();
+
+        for (int i = 0; i < ids.size(); i++) {
+
+            int id = ids.get(i);
+
+            json.beginObject();
+            json.field("channelId", id);
+            json.field("channel", model.getChannelName(id));
+
+            try {
+                Program program = onAir.get(i).join();
+                json.name("program");
+
+                if (program == null) {
+                    json.nullValue();
+                } else {
+                    program(json, program);
+                }
+
+            } catch (CompletionException e) {
+                System.err.println("Error loading channel " + id + " "
+                        + e.getCause().toString());
+                json.name("program");
+                json.nullValue();
+                json.field("error", "Upstream request failed");
+            }
+            json.endObject();
+        }
+        json.endArray();
+
+        return json.toBytes();
+    }
+
+    private static void program(Json json, Program p) {
+
+        json.beginObject();
+        json.field("id", p.getId());
+        json.field("title", p.getTitle());
+        json.field("start", p.getStartTime() == null ? null
+                : p.getStartTime().toString());
+        json.field("end", p.getEndTime() == null ? null
+                : p.getEndTime().toString());
+        json.field("description", p.getDescription());
+        json.endObject();
+    }
+
+    /**
+     * Gets a rendered response, rendering it if it is missing or too old.
+     * Only one request renders a url at a time, the others wait for it.
+     */
+    private Response cached(String key, Renderer renderer) throws Exception {
+
+        while (true) {
+
+            var current = responses.get(key);
+
+            if (current != null && !isStale(current)) {
+                return await(current);
+            }
+
+            var mine = new CompletableFuture<Response>();
+            boolean won = current == null
+                    ? responses.putIfAbsent(key, mine) == null
+                    : responses.replace(key, current, mine);
+
+            if (!won) {
+                continue;
+            }
+
+            try {
+                mine.complete(new Response(renderer.render()));
+                trim();
+
+            } catch (Exception e) {
+                responses.remove(key, mine);
+                mine.completeExceptionally(e);
+            }
+            return await(mine);
+        }
+    }
+
+    private boolean isStale(CompletableFuture<Response> response) {
+
+        if (!response.isDone()) {
+            return false;
+        }
+        if (response.isCompletedExceptionally()) {
+            return true;
+        }
+        return System.nanoTime() - response.join().created > cacheNanos;
+    }
+
+    /**
+     * Drops stale responses once the cache holds too many urls.
+     */
+    private void trim() {
+
+        if (responses.size() > MAX_CACHED) {
+            responses.values().removeIf(this::isStale);
+        }
+    }
+
+    private static Response await(CompletableFuture<Response> response)
+            throws Exception {
+
+        try {
+            return response.get();
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void send(HttpExchange exchange, Response response)
+            throws IOException {
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON);
+        headers.set("Vary", "Accept-Encoding");
+
+        String accept = exchange.getRequestHeaders().getFirst(
+                "Accept-Encoding");
+        boolean gzip = response.gzipped != null && accept != null
+                && accept.contains("gzip");
+
+        //each encoding is a representation of its own with its own tag
+        String etag = gzip ? response.gzipEtag : response.etag;
+        headers.set("ETag", etag);
+
+        if (matches(exchange.getRequestHeaders().get("If-None-Match"),
+                etag)) {
+
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        byte[] body = response.body;
+
+        if (gzip) {
+            body = response.gzipped;
+            headers.set("Content-Encoding", "gzip");
+        }
+
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Compares the entity tags of {@code If-None-Match} headers with the
+     * tag of a response, the weak way RFC 7232 asks for: a {@code W/}
+     * prefix is ignored. Each header may hold a list of tags, or
+     * {@code *} matching any response.
+     * @param headers the header values, may be null
+     * @param etag tag of the response, quoted
+     * @return true if a tag matches
+     */
+    private static boolean matches(List<String> headers, String etag) {
+
+        if (headers == null) {
+            return false;
+        }
+
+        for (String header : headers) {
+
+            int i = 0;
+
+            while (i < header.length()) {
+
+                char c = header.charAt(i);
+
+                if (c == ',' || c == ' ' || c == '\t') {
+                    i++;
+                } else if (c == '*') {
+                    return true;
+                } else if (header.startsWith("W/", i)) {
+                    i += 2;
+                } else if (c == '"') {
+
+                    int end = header.indexOf('"', i + 1);
+
+                    if (end < 0) {
+                        return false;
+                    }
+                    if (header.regionMatches(i, etag, 0, etag.length())
+                            && end + 1 - i == etag.length()) {
+                        return true;
+                    }
+                    i = end + 1;
+                } else {
+                    //not a valid list, nothing after this can be trusted
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void sendError(HttpExchange exchange, int status,
+                                  String message) throws IOException {
+
+        var json = new Json();
+        json.beginObject();
+        json.field("error", message);
+        json.endObject();
+        byte[] body = json.toBytes();
+
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+
+        var parameters = new HashMap<String, String>();
+
+        if (query == null) {
+            return parameters;
+        }
+
+        for (String pair : query.split("&")) {
+
+            int eq = pair.indexOf('=');
+
+            if (eq > 0) {
+                parameters.put(
+                        URLDecoder.decode(pair.substring(0, eq),
+                                StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1),
+                                StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @param value an ISO date or date time, may be null
+     * @param fallback used when the value is missing
+     * @return the time, a date meaning its start
+     */
+    private static LocalDateTime parseTime(String value,
+                                           LocalDateTime fallback) {
+
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+
+        try {
+            return value.length() == 10 ? LocalDate.parse(value)
+                    .atStartOfDay() : LocalDateTime.parse(value);
+
+        } catch (DateTimeParseException e) {
+            throw new HttpError(400, "Invalid time " + value);
+        }
+    }
+
+    /**
+     * Renders one body.
+     */
+    private interface Renderer {
+
+        byte[] render() throws Exception;
+    }
+
+    /**
+     * A rendered response with its compressed form, and an ETag for each.
+     */
+    private static final class Response {
+
+        private final byte[] body;
+        private final byte[] gzipped;
+        private final String etag;
+        private final String gzipEtag;
+        private final long created;
+
+        Response(byte[] body) {
+
+            this.body = body;
+            gzipped = body.length >= GZIP_MIN_BYTES ? gzip(body) : null;
+            created = System.nanoTime();
+
+            var crc = new CRC32();
+            crc.update(body);
+            String tag = Long.toHexString(crc.getValue()) + "-"
+                    + Integer.toHexString(body.length);
+            etag = "\"" + tag + "\"";
+            gzipEtag = "\"" + tag + "-gzip\"";
+        }
+
+        private static byte[] gzip(byte[] data) {
+
+            var bytes = new ByteArrayOutputStream(data.length / 4);
+
+            try (var out = new GZIPOutputStream(bytes)) {
+                out.write(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * A request that can not be answered, with its status code.
+     */
+    private static final class HttpError extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        HttpError(int status, String message) {
+
+            super(message);
+            this.status = status;
+        }
+    }
+}
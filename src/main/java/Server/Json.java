@@ -0,0 +1,128 @@
+package Server;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal JSON writer for the API responses. Commas between values are
+ * added automatically. Its string quoting is also used by the export.
+ */
+public final class Json {
+
+    private final StringBuilder s = new StringBuilder(256);
+
+    //true when the next value in the current array or object is not first
+    private boolean separate;
+
+    Json() {
+    }
+
+    void beginArray() {
+
+        value();
+        s.append('[');
+        separate = false;
+    }
+
+    void endArray() {
+
+        s.append(']');
+        separate = true;
+    }
+
+    void beginObject() {
+
+        value();
+        s.append('{');
+        separate = false;
+    }
+
+    void endObject() {
+
+        s.append('}');
+        separate = true;
+    }
+
+    /**
+     * Writes a field name, the value has to follow.
+     */
+    void name(String name) {
+
+        value();
+        quote(s, name);
+        s.append(':');
+        separate = false;
+    }
+
+    void field(String name, String value) {
+
+        name(name);
+        if (value == null) {
+            nullValue();
+        } else {
+            quote(s, value);
+            separate = true;
+        }
+    }
+
+    void field(String name, long value) {
+
+        name(name);
+        s.append(value);
+        separate = true;
+    }
+
+    void nullValue() {
+
+        value();
+        s.append("null");
+        separate = true;
+    }
+
+    byte[] toBytes() {
+
+        return s.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void value() {
+
+        if (separate) {
+            s.append(',');
+        }
+    }
+
+    /**
+     * @param value a string
+     * @return the string as a JSON string literal
+     */
+    public static String quote(String value) {
+
+        var s = new StringBuilder(value.length() + 2);
+        quote(s, value);
+        return s.toString();
+    }
+
+    private static void quote(StringBuilder s, String value) {
+
+        s.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"': s.append("\\\""); break;
+                case '\\': s.append("\\\\"); break;
+                case '\n': s.append("\\n"); break;
+                case '\r': s.append("\\r"); break;
+                case '\t': s.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        s.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        s.append(c);
+                    }
+            }
+        }
+        s.append('"');
+    }
+}
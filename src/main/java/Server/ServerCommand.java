@@ -0,0 +1,133 @@
+package Server;
+
+import Model.Model;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Command line mode serving the schedules over HTTP without opening a
+ * window.
+ * <pre>
+ * java -jar RadioInfo.jar --serve [--host HOST] [--port N] [--threads N]
+ * </pre>
+ * The server listens on 127.0.0.1:8080 by default and runs until the
+ * process is stopped.
+ */
+public class ServerCommand {
+
+    static final String USAGE = "usage: --serve [--host HOST] [--port N]"
+            + " [--threads N]";
+
+    private String host = "127.0.0.1";
+    private int port = 8080;
+    private int threads = Math.max(4,
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * @param args command line arguments
+     * @return true if the arguments ask for the server
+     */
+    public static boolean isServe(String[] args) {
+
+        return args.length > 0 && args[0].equals("--serve");
+    }
+
+    /**
+     * Starts the server.
+     * @param args command line arguments, starting with --serve
+     * @return exit status if the server could not be started, otherwise
+     * the method does not return until the process is stopped
+     */
+    public static int run(String[] args) {
+
+        ServerCommand command = new ServerCommand();
+
+        try {
+            command.parse(args);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        return command.serve();
+    }
+
+    private void parse(String[] args) {
+
+        //the first argument is --serve, which takes no value
+        for (int i = 1; i < args.length; i++) {
+
+            String option = args[i];
+
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for "
+                        + option);
+            }
+            String value = args[++i];
+
+            switch (option) {
+                case "--host":
+                    host = value;
+                    break;
+                case "--port":
+                    port = number(option, value, 0);
+                    break;
+                case "--threads":
+                    threads = number(option, value, 1);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option "
+                            + option);
+            }
+        }
+    }
+
+    private int serve() {
+
+        Model model = new Model();
+        model.loadChannels();
+
+        if (model.getChannelNames().isEmpty()) {
+            System.err.println("Error starting server, no channels could be "
+                    + "loaded");
+            return 1;
+        }
+        model.prefetchSchedules();
+
+        try {
+            var server = new ApiServer(model,
+                    new InetSocketAddress(host, port), threads);
+            server.start();
+            System.err.println("Serving on http://" + host + ":"
+                    + server.getPort() + "/");
+
+        } catch (IOException e) {
+            System.err.println("Error starting server " + e.toString());
+            return 1;
+        }
+
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    private static int number(String option, String value, int min) {
+
+        try {
+            int n = Integer.parseInt(value);
+
+            if (n >= min) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        throw new IllegalArgumentException(option + " must be a number of "
+                + "at least " + min);
+    }
+}
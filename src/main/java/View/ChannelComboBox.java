@@ -39,13 +39,17 @@ public class ChannelComboBox extends JComboBox<String> {
 
     /**
      * Goes through the list of channel names and adds them to the
-     * JComboBox
+     * JComboBox. Names that are already in the JComboBox are skipped.
      */
     public void addChannels(List<String> channels){
 
         for (String s : channels) {
 
-            addItem(s);
+            if (((DefaultComboBoxModel<String>) getModel()).getIndexOf(s)
+                    < 0) {
+
+                addItem(s);
+            }
         }
 
     }
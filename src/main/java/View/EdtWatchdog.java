@@ -0,0 +1,370 @@
+package View;
+
+import Model.Metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches how long the Event Dispatch Thread takes to dispatch each event.
+ * It is pushed as the system event queue, so every event passes through
+ * it. Every event is recorded once in the timer {@code edt.dispatch},
+ * without the time spent in nested dispatches, and the time an
+ * {@code invokeLater} waited in the queue in {@code edt.queueDelay}.
+ * <p>
+ * A dispatch that runs longer than the threshold without a break is a
+ * stall. It is recorded in the timer {@code edt.stall}, written to standard
+ * error and kept among the recent stalls, which can be read through the
+ * MBean {@code RadioInfo:type=EdtWatchdog}. A sampler thread checks the
+ * current dispatch a few times per threshold, and takes a stack sample of
+ * the Event Dispatch Thread at every check once the threshold has passed.
+ * The samples are added to the report.
+ * <p>
+ * Configured by the system properties {@code radioinfo.edt.watchdog},
+ * false to turn it off, and {@code radioinfo.edt.thresholdMillis}, 100 by
+ * default.
+ */
+public class EdtWatchdog extends EventQueue implements EdtWatchdogMXBean {
+
+    private static final String OBJECT_NAME = "RadioInfo:type=EdtWatchdog";
+
+    private static final int MAX_RECENT = 20;
+    private static final int MAX_SAMPLES = 50;
+    private static final int MAX_FRAMES = 25;
+
+    private static final Metrics.Timer DISPATCH =
+            Metrics.getInstance().timer("edt.dispatch");
+    private static final Metrics.Timer QUEUE_DELAY =
+            Metrics.getInstance().timer("edt.queueDelay");
+    private static final Metrics.Timer STALL =
+            Metrics.getInstance().timer("edt.stall");
+
+    private static EdtWatchdog installed;
+
+    private volatile long thresholdNanos;
+
+    //the dispatch being watched, written by the Event Dispatch Thread. A
+    //new sequence number is taken when a dispatch starts or resumes after
+    //a nested one, or after a nested event loop, such as the one of a
+    //modal dialog, waited for input.
+    private volatile Thread dispatchThread;
+    private volatile long dispatchSeq;
+    private volatile long dispatchStart;
+    private volatile AWTEvent dispatchEvent;
+    private int depth;
+
+    //time the current event ran before its latest resume, used on the
+    //Event Dispatch Thread only
+    private long dispatchActive;
+
+    //samples of the current stall, guarded by lock
+    private final Object lock = new Object();
+    private final List<StackTraceElement[]> samples = new ArrayList<>();
+    private volatile long sampledSeq = -1;
+    private final Deque<String> recent = new ArrayDeque<>();
+
+    private final ScheduledThreadPoolExecutor sampler;
+    private ScheduledFuture<?> sampling;
+
+    private EdtWatchdog(long thresholdMillis) {
+
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+
+        sampler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "edt-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.setRemoveOnCancelPolicy(true);
+        scheduleSampling();
+    }
+
+    /**
+     * Installs the watchdog as the system event queue, unless it is turned
+     * off by the system property. Calling it again does nothing.
+     */
+    public static synchronized void install() {
+
+        if (installed != null || !Boolean.parseBoolean(
+                System.getProperty("radioinfo.edt.watchdog", "true"))) {
+            return;
+        }
+
+        installed = new EdtWatchdog(Long.getLong(
+                "radioinfo.edt.thresholdMillis", 100));
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    installed, new ObjectName(OBJECT_NAME));
+
+        } catch (JMException e) {
+            System.err.println("Error registering EDT watchdog "
+                    + e.toString());
+        }
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+
+        long start = System.nanoTime();
+
+        if (event instanceof InvocationEvent) {
+
+            long waitedMillis = System.currentTimeMillis()
+                    - ((InvocationEvent) event).getWhen();
+            QUEUE_DELAY.record(TimeUnit.MILLISECONDS.toNanos(waitedMillis));
+        }
+
+        long outerSeq = dispatchSeq;
+        AWTEvent outerEvent = dispatchEvent;
+        long outerActive = 0;
+
+        if (depth++ > 0) {
+            //the outer dispatch is paused while this one runs
+            outerActive = dispatchActive + finish(outerSeq, outerEvent,
+                    start);
+        }
+
+        begin(event, start);
+        dispatchActive = 0;
+
+        try {
+            super.dispatchEvent(event);
+
+        } finally {
+            long end = System.nanoTime();
+            DISPATCH.record(dispatchActive + finish(dispatchSeq, event, end));
+
+            if (--depth > 0) {
+                begin(outerEvent, end);
+                dispatchActive = outerActive;
+            } else {
+                dispatchEvent = null;
+            }
+        }
+    }
+
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+
+        if (depth == 0) {
+            return super.getNextEvent();
+        }
+
+        //a nested event loop waiting for input, such as an open modal
+        //dialog, is idle rather than stalled
+        AWTEvent outerEvent = dispatchEvent;
+        dispatchActive += finish(dispatchSeq, outerEvent, System.nanoTime());
+        dispatchEvent = null;
+
+        try {
+            return super.getNextEvent();
+
+        } finally {
+            begin(outerEvent, System.nanoTime());
+        }
+    }
+
+    private void begin(AWTEvent event, long start) {
+
+        dispatchThread = Thread.currentThread();
+        dispatchEvent = event;
+        dispatchStart = start;
+        dispatchSeq++;
+    }
+
+    /**
+     * Ends the part of a dispatch with the given sequence number, and
+     * reports it if it ran longer than the threshold.
+     * @return how long that part ran in nanoseconds
+     */
+    private long finish(long seq, AWTEvent event, long end) {
+
+        long nanos = end - dispatchStart;
+
+        if (nanos >= thresholdNanos) {
+            stalled(seq, event, nanos);
+        }
+        return nanos;
+    }
+
+    /**
+     * Run by the sampler, takes a stack sample if the current dispatch has
+     * run longer than the threshold.
+     */
+    private void sample() {
+
+        Thread thread = dispatchThread;
+        AWTEvent event = dispatchEvent;
+        long seq = dispatchSeq;
+        long elapsed = System.nanoTime() - dispatchStart;
+
+        if (thread == null || event == null || elapsed < thresholdNanos) {
+            return;
+        }
+
+        StackTraceElement[] stack = thread.getStackTrace();
+
+        synchronized (lock) {
+
+            //the dispatch may have ended while the stack was taken
+            if (seq != dispatchSeq) {
+                return;
+            }
+            if (sampledSeq != seq) {
+                samples.clear();
+                sampledSeq = seq;
+            }
+            if (samples.size() < MAX_SAMPLES) {
+                samples.add(stack);
+            }
+        }
+    }
+
+    /**
+     * Records and reports a stall, with the samples taken of it if the
+     * sampler saw it.
+     */
+    private void stalled(long seq, AWTEvent event, long nanos) {
+
+        STALL.record(nanos);
+
+        List<StackTraceElement[]> stalledSamples = new ArrayList<>();
+
+        synchronized (lock) {
+
+            if (sampledSeq == seq) {
+                stalledSamples.addAll(samples);
+            }
+            samples.clear();
+            sampledSeq = -1;
+        }
+
+        String report = report(event, nanos, stalledSamples);
+        System.err.print(report);
+
+        synchronized (recent) {
+
+            recent.addFirst(report);
+            if (recent.size() > MAX_RECENT) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    /**
+     * Describes a stall: the event, how long it ran, the application
+     * frames most often on top of the stack and the last sample.
+     */
+    private static String report(AWTEvent event, long nanos,
+                                 List<StackTraceElement[]> samples) {
+
+        var text = new StringBuilder();
+        text.append(String.format("EDT stall of %d ms at %s dispatching %s,"
+                        + " %d samples%n", nanos / 1_000_000,
+                LocalDateTime.now().withNano(0), describe(event),
+                samples.size()));
+
+        var hot = new LinkedHashMap<String, Integer>();
+
+        for (StackTraceElement[] sample : samples) {
+
+            for (StackTraceElement frame : sample) {
+
+                if (isApplicationFrame(frame)) {
+                    hot.merge(frame.toString(), 1, Integer::sum);
+                    break;
+                }
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : hot.entrySet()) {
+            text.append(String.format("    %3d x %s%n", entry.getValue(),
+                    entry.getKey()));
+        }
+
+        if (!samples.isEmpty()) {
+
+            StackTraceElement[] last = samples.get(samples.size() - 1);
+            text.append("  last sample:").append(System.lineSeparator());
+
+            for (int i = 0; i < last.length && i < MAX_FRAMES; i++) {
+                text.append("    at ").append(last[i])
+                        .append(System.lineSeparator());
+            }
+        }
+        return text.toString();
+    }
+
+    private static String describe(AWTEvent event) {
+
+        if (event instanceof InvocationEvent) {
+            //names the runnable passed to invokeLater
+            return event.paramString();
+        }
+        return event.getClass().getSimpleName() + " on "
+                + event.getSource().getClass().getSimpleName();
+    }
+
+    private static boolean isApplicationFrame(StackTraceElement frame) {
+
+        String name = frame.getClassName();
+
+        return name.startsWith("View.") || name.startsWith("Controller.")
+                || name.startsWith("Model.");
+    }
+
+    private void scheduleSampling() {
+
+        //at least four checks per threshold, so a stall is seen soon after
+        //it crosses the threshold
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(5),
+                thresholdNanos / 4);
+
+        synchronized (lock) {
+
+            if (sampling != null) {
+                sampling.cancel(false);
+            }
+            sampling = sampler.scheduleAtFixedRate(this::sample, period,
+                    period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public long getThresholdMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    @Override
+    public void setThresholdMillis(long millis) {
+
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, millis));
+        scheduleSampling();
+    }
+
+    @Override
+    public String[] getRecentStalls() {
+
+        synchronized (recent) {
+            return recent.toArray(new String[0]);
+        }
+    }
+}
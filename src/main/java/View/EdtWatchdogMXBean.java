@@ -0,0 +1,25 @@
+package View;
+
+/**
+ * Management interface of {@link EdtWatchdog}. The stall histogram is the
+ * timer {@code edt.stall} of {@link Model.MetricsMXBean}.
+ */
+public interface EdtWatchdogMXBean {
+
+    /**
+     * @return how long a dispatch may run before it counts as a stall
+     */
+    long getThresholdMillis();
+
+    /**
+     * @param millis how long a dispatch may run before it counts as a
+     * stall
+     */
+    void setThresholdMillis(long millis);
+
+    /**
+     * @return reports of the latest stalls with their stack samples,
+     * newest first
+     */
+    String[] getRecentStalls();
+}
@@ -1,5 +1,7 @@
 package View;
 
+import Model.Metrics;
+
 import javax.swing.*;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
@@ -13,6 +15,15 @@ import java.util.List;
 
 public class MainWindow extends JFrame {
 
+    //size the channel image is shown at
+    public static final int CHANNEL_IMAGE_SIZE = 350;
+
+    //size the program image is shown at in the program dialog
+    public static final int PROGRAM_IMAGE_SIZE = 300;
+
+    private static final Metrics.Timer RENDER =
+            Metrics.getInstance().timer("table.render");
+
     private JButton refreshButton;
     private JTable jTable;
     private ProgramTable tableModel;
@@ -23,6 +34,8 @@ public class MainWindow extends JFrame {
     private JMenuItem aboutItem;
     private JMenuItem helpItem;
     private JPanel comboPanel;
+    private JPanel bottomPanel;
+    private JLabel statusLine;
 
     /**
      * Constructor, initialises the components in the GUI
@@ -39,7 +52,7 @@ public class MainWindow extends JFrame {
         lastUpdate = new JTextArea();
         noImageFound = new JTextArea();
 
-        JPanel bottomPanel = new JPanel();
+        bottomPanel = new JPanel();
         bottomPanel.setLayout(new FlowLayout(FlowLayout.CENTER));
         bottomPanel.setBackground(Color.GRAY);
 
@@ -126,21 +139,44 @@ public class MainWindow extends JFrame {
     }
 
     /**
-     * Adds new data to the table model.
-     * @param tableData list of table data. TableData holds data for each
-     *                  column in the table.
+     * Adds new data to the table model. Only rows that differ from the rows
+     * already shown are updated, see {@link ProgramTable#setTableData}.
+     * @param tableData list of table data sorted by start time. TableData
+     *                  holds data for each column in the table.
      */
     public void updateTable(List<TableData> tableData) {
 
-        clearModel();
+        long start = RENDER.start();
+        tableModel.setTableData(tableData);
+        RENDER.stop(start);
+    }
 
-        for (TableData td : tableData){
+    /**
+     * Updates the first rows of the table while programs are still
+     * arriving, later rows are kept until the next full update.
+     * @param tableData the rows received so far, sorted by start time
+     */
+    public void updateLeadingRows(List<TableData> tableData) {
+
+        long start = RENDER.start();
+        tableModel.setLeadingRows(tableData);
+        RENDER.stop(start);
+    }
 
-            tableModel.addTableData(td);
+    /**
+     * Shows a line of text next to the refresh button, added the first time
+     * it is set.
+     * @param text text of the status line
+     */
+    public void setStatusLine(String text) {
 
+        if (statusLine == null) {
+            statusLine = new JLabel();
+            statusLine.setForeground(Color.WHITE);
+            bottomPanel.add(statusLine);
+            bottomPanel.revalidate();
         }
-        tableModel.fireTableDataChanged();
-        pack();
+        statusLine.setText(text);
     }
 
     public void clearModel(){
@@ -233,16 +269,14 @@ public class MainWindow extends JFrame {
     /**
      * This method is used to show a dialog window when a user presses on
      * a specific program. Shows image and description for that program.
+     * The image is expected to be decoded at {@link #PROGRAM_IMAGE_SIZE}
+     * already, it is only scaled here if it is not.
      * @param description Program description
      * @param image Program image
      */
     public void setOptionDialog(String description, ImageIcon image) {
 
-        if (image != null) {
-            Image tmp = image.getImage();
-            tmp = tmp.getScaledInstance(300, 300, Image.SCALE_SMOOTH);
-            image = new ImageIcon(tmp);
-        }
+        image = fitIcon(image, PROGRAM_IMAGE_SIZE);
 
         int middle = description.length() / 2;
 
@@ -261,7 +295,9 @@ public class MainWindow extends JFrame {
     }
 
     /**
-     * Sets the image for a specific channel
+     * Sets the image for a specific channel. The image is expected to be
+     * decoded at {@link #CHANNEL_IMAGE_SIZE} already, it is only scaled here
+     * if it is not.
      * @param icon Image for a channel
      */
     public void setChannelImage(ImageIcon icon) {
@@ -273,9 +309,7 @@ public class MainWindow extends JFrame {
         }
 
         if(icon != null) {
-            Image tmp = icon.getImage();
-            tmp = tmp.getScaledInstance(350, 350, Image.SCALE_SMOOTH);
-            icon = new ImageIcon(tmp);
+            icon = fitIcon(icon, CHANNEL_IMAGE_SIZE);
 
             imageLabel = new JLabel(icon);
             imagePanel.add(imageLabel, BorderLayout.CENTER);
@@ -304,4 +338,23 @@ public class MainWindow extends JFrame {
         pack();
 
     }
+
+    /**
+     * Scales an icon that does not already have the given size.
+     * @param icon the icon, may be null
+     * @param size width and height in pixels
+     * @return an icon of the given size, or null
+     */
+    private static ImageIcon fitIcon(ImageIcon icon, int size) {
+
+        if (icon == null || (icon.getIconWidth() == size
+                && icon.getIconHeight() == size)) {
+
+            return icon;
+        }
+
+        Image tmp = icon.getImage();
+        tmp = tmp.getScaledInstance(size, size, Image.SCALE_SMOOTH);
+        return new ImageIcon(tmp);
+    }
 }
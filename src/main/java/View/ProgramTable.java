@@ -1,8 +1,12 @@
 package View;
 
+import Model.Program;
+
 import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * This class holds the model containing data displayed in the JTable.
@@ -10,6 +14,8 @@ import java.util.List;
 
 public class ProgramTable extends AbstractTableModel {
 
+    private static final int STATUS_COLUMN = 3;
+
     //list of table data
     private List<TableData> tableData;
 
@@ -121,6 +127,211 @@ public class ProgramTable extends AbstractTableModel {
         this.fireTableRowsInserted(tableData.size(), tableData.size());
     }
 
+    /**
+     * Replaces the table data with the given rows and fires events only for
+     * the rows that were inserted, removed or changed. Rows are matched by
+     * start time and program id. Both the current and the new rows are
+     * expected to be sorted by start time, if they are not the whole table
+     * is replaced. Selection and scroll position are kept since unchanged
+     * rows are never removed.
+     * @param rows the new rows, sorted by start time
+     */
+    public void setTableData(List<TableData> rows) {
+
+        if (!isSorted(rows) || !isSorted(tableData)) {
+
+            tableData = new ArrayList<>(rows);
+            fireTableDataChanged();
+            return;
+        }
+
+        int i = 0;
+        int j = 0;
+        int updatedFrom = -1;
+        int updatedTo = -1;
+
+        while (j < rows.size()) {
+
+            if (i >= tableData.size()) {
+
+                fireUpdated(updatedFrom, updatedTo);
+                updatedFrom = -1;
+
+                int first = tableData.size();
+                tableData.addAll(rows.subList(j, rows.size()));
+                fireTableRowsInserted(first, tableData.size() - 1);
+                i = tableData.size();
+                break;
+            }
+
+            int order = compareKey(tableData.get(i), rows.get(j));
+
+            if (order < 0) {
+
+                fireUpdated(updatedFrom, updatedTo);
+                updatedFrom = -1;
+
+                int end = i;
+                while (end < tableData.size()
+                        && compareKey(tableData.get(end), rows.get(j)) < 0) {
+                    end++;
+                }
+                tableData.subList(i, end).clear();
+                fireTableRowsDeleted(i, end - 1);
+            }
+            else if (order > 0) {
+
+                fireUpdated(updatedFrom, updatedTo);
+                updatedFrom = -1;
+
+                int end = j;
+                while (end < rows.size()
+                        && compareKey(tableData.get(i), rows.get(end)) > 0) {
+                    end++;
+                }
+                tableData.addAll(i, rows.subList(j, end));
+                fireTableRowsInserted(i, i + end - j - 1);
+                i += end - j;
+                j = end;
+            }
+            else {
+
+                //same program, the new row replaces the old one so it is
+                //bound to the latest program object
+                boolean changed = !sameContent(tableData.get(i), rows.get(j));
+                tableData.set(i, rows.get(j));
+
+                if (changed) {
+
+                    if (updatedFrom >= 0 && updatedTo == i - 1) {
+                        updatedTo = i;
+                    }
+                    else {
+                        fireUpdated(updatedFrom, updatedTo);
+                        updatedFrom = i;
+                        updatedTo = i;
+                    }
+                }
+                i++;
+                j++;
+            }
+        }
+
+        fireUpdated(updatedFrom, updatedTo);
+
+        if (i < tableData.size()) {
+
+            int last = tableData.size() - 1;
+            tableData.subList(i, tableData.size()).clear();
+            fireTableRowsDeleted(i, last);
+        }
+    }
+
+    /**
+     * Replaces the rows up to the last of the given rows and keeps the
+     * later ones, used while a schedule is still arriving. Rows already
+     * shown for the same programs are kept in place, so a refresh does not
+     * empty the table while it loads.
+     * @param rows the leading rows, sorted by start time
+     */
+    public void setLeadingRows(List<TableData> rows) {
+
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        TableData last = rows.get(rows.size() - 1);
+        int keepFrom = 0;
+
+        while (keepFrom < tableData.size()
+                && compareKey(tableData.get(keepFrom), last) <= 0) {
+            keepFrom++;
+        }
+
+        var merged = new ArrayList<TableData>(rows.size()
+                + tableData.size() - keepFrom);
+        merged.addAll(rows);
+        merged.addAll(tableData.subList(keepFrom, tableData.size()));
+
+        setTableData(merged);
+    }
+
+    /**
+     * Fires an update for a range of rows, if there is one.
+     */
+    private void fireUpdated(int from, int to) {
+
+        if (from >= 0) {
+            fireTableRowsUpdated(from, to);
+        }
+    }
+
+    /**
+     * Orders rows by start time and then program id.
+     */
+    private static int compareKey(TableData a, TableData b) {
+
+        int order = a.getStartTime().compareTo(b.getStartTime());
+        return order != 0 ? order : Integer.compare(a.getId(), b.getId());
+    }
+
+    private static boolean sameContent(TableData a, TableData b) {
+
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getEndTime(), b.getEndTime())
+                && Objects.equals(a.getStatus(), b.getStatus());
+    }
+
+    private static boolean isSorted(List<TableData> rows) {
+
+        for (int i = 1; i < rows.size(); i++) {
+
+            if (compareKey(rows.get(i - 1), rows.get(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Recomputes the status of every row and fires a cell update for each
+     * status that changed.
+     * @param now the current time
+     */
+    public void refreshStatuses(LocalDateTime now) {
+
+        for (int row = 0; row < tableData.size(); row++) {
+
+            if (tableData.get(row).updateStatus(now)) {
+                fireTableCellUpdated(row, STATUS_COLUMN);
+            }
+        }
+    }
+
+    /**
+     * @param now the current time
+     * @return the next time any row changes status, or null if no row will
+     */
+    public LocalDateTime nextStatusChange(LocalDateTime now) {
+
+        LocalDateTime next = null;
+
+        for (TableData td : tableData) {
+
+            Program p = td.getProgram();
+
+            for (LocalDateTime boundary : new LocalDateTime[]{
+                    p.getStartTime(), p.getEndTime()}) {
+
+                if (boundary != null && boundary.isAfter(now)
+                        && (next == null || boundary.isBefore(next))) {
+                    next = boundary;
+                }
+            }
+        }
+        return next;
+    }
+
     /**
      * Clears the table data.
      */
@@ -144,4 +355,14 @@ public class ProgramTable extends AbstractTableModel {
         return tableData.get(rowIndex).getId();
     }
 
+    /**
+     *
+     * @param rowIndex row index
+     * @return the program shown in a specific row
+     */
+    public Program getProgramAt(int rowIndex){
+
+        return tableData.get(rowIndex).getProgram();
+    }
+
 }
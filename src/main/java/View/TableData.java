@@ -1,36 +1,58 @@
 package View;
 
+import Model.Program;
+
+import java.time.LocalDateTime;
+
 /**
  * This class represents a data object which holds information about data
- * to be presented in the table.
+ * to be presented in the table. Each row is bound to the program it shows,
+ * so a clicked row can be resolved without searching.
  */
 
 
 public class TableData {
 
-    private String title;
+    public static final String RUNNING = "Running";
+    public static final String FINISHED = "Finished";
+    public static final String UPCOMING = "Upcoming";
+
+    private Program program;
     private String startTime;
     private String endTime;
     private String status;
-    private int id;
 
-    public TableData(int id, String title, String startTime, String endTime,
+    /**
+     * Constructor
+     * @param program the program shown in the row
+     * @param startTime formatted start time
+     * @param endTime formatted end time
+     * @param status status of the program
+     */
+    public TableData(Program program, String startTime, String endTime,
                      String status){
 
-        this.id = id;
-        this.title = title;
+        this.program = program;
         this.startTime = startTime;
         this.endTime = endTime;
         this.status = status;
 
     }
 
+    /**
+     *
+     * @return the program shown in the row
+     */
+    public Program getProgram() {
+        return program;
+    }
+
     /**
      *
      * @return id of program
      */
     public int getId() {
-        return id;
+        return program.getId();
     }
 
     /**
@@ -38,7 +60,7 @@ public class TableData {
      * @return Program title
      */
     public String getTitle() {
-        return title;
+        return program.getTitle();
     }
 
     /**
@@ -64,4 +86,39 @@ public class TableData {
     public String getStatus() {
         return status;
     }
+
+    /**
+     * Recomputes the status from the program's start and end time.
+     * @param now the current time
+     * @return true if the status changed
+     */
+    boolean updateStatus(LocalDateTime now) {
+
+        String newStatus = statusAt(program.getStartTime(),
+                program.getEndTime(), now);
+
+        if (newStatus.equals(status)) {
+            return false;
+        }
+        status = newStatus;
+        return true;
+    }
+
+    /**
+     * @param start start time of a program
+     * @param end end time of a program
+     * @param now the current time
+     * @return the status of the program at the given time
+     */
+    public static String statusAt(LocalDateTime start, LocalDateTime end,
+                                  LocalDateTime now) {
+
+        if (now.isBefore(start)) {
+            return UPCOMING;
+        }
+        if (now.isBefore(end)) {
+            return RUNNING;
+        }
+        return FINISHED;
+    }
 }
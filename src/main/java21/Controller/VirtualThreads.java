@@ -0,0 +1,31 @@
+package Controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, JDK 21 version of the class. Packaged under
+ * {@code META-INF/versions/21} and used instead of the reflective version
+ * when running on JDK 21 or later.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true, virtual threads are always available here
+     */
+    static boolean isSupported() {
+
+        return true;
+    }
+
+    /**
+     * @return an executor starting a new virtual thread for each task
+     */
+    static ExecutorService newExecutor() {
+
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
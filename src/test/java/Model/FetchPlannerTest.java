@@ -0,0 +1,76 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FetchPlannerTest {
+
+    private static final LocalDateTime NOON =
+            LocalDateTime.of(2024, 3, 10, 12, 0);
+
+    @Test
+    void failedDayIsNotFetchedAgainUntilItsRetry() throws Exception {
+
+        var parser = new FailingParser();
+
+        //entries expire as soon as they are stored
+        var planner = new FetchPlanner(parser,
+                new ScheduleCache(0, 100, Long.MAX_VALUE));
+
+        ScheduleColumns fetched = planner.schedule(1, NOON, NOON, false);
+        parser.failing = true;
+
+        //the day has expired, the fetch fails and the copy held is used
+        assertSame(fetched, planner.schedule(1, NOON, NOON, false));
+        assertEquals(2, parser.requests);
+
+        //the retry is not due yet, so the copy is used without a request
+        assertSame(fetched, planner.schedule(1, NOON, NOON, false));
+        assertEquals(2, parser.requests);
+
+        //a refresh asked for by the user still goes to the API
+        parser.failing = false;
+        planner.schedule(1, NOON, NOON, true);
+        assertEquals(3, parser.requests);
+    }
+
+    /**
+     * Answers one program a day until told to fail.
+     */
+    private static class FailingParser extends XmlParser {
+
+        volatile boolean failing;
+        volatile int requests;
+
+        FailingParser() {
+
+            super(ParserEngine.STAX, (url, conditional) -> {
+                throw new AssertionError("Unexpected request " + url);
+            }, XmlParser.DEFAULT_BASE_URL);
+        }
+
+        @Override
+        public synchronized ScheduleColumns channelEpisodes(
+                int channelId, LocalDate date,
+                Consumer<List<Program>> progress) throws IOException {
+
+            requests++;
+
+            if (failing) {
+                throw new IOException("API unreachable");
+            }
+            return new ScheduleColumns.Builder()
+                    .add(1, "a", null, null, date.atTime(10, 0),
+                            date.atTime(14, 0))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JsonDecoderTest {
+
+    @Test
+    void nullProgramLeavesTheIdZero() throws Exception {
+
+        ScheduleColumns episodes = new JsonDecoder().episodes(body(
+                "{\"schedule\":[{\"title\":\"a\",\"program\":null,"
+                        + "\"starttimeutc\":\"/Date(1579042800000)/\","
+                        + "\"endtimeutc\":\"/Date(1579043700000)/\"},"
+                        + "{\"title\":\"b\",\"program\":{\"id\":7},"
+                        + "\"starttimeutc\":\"/Date(1579043700000)/\","
+                        + "\"endtimeutc\":\"/Date(1579044000000)/\"}]}"));
+
+        assertEquals(2, episodes.size());
+        assertEquals(0, episodes.idAt(0));
+        assertEquals(7, episodes.idAt(1));
+        assertEquals("b", episodes.titleAt(1));
+    }
+
+    @Test
+    void dateOffsetIsIgnored() {
+
+        LocalDateTime expected = LocalDateTime.of(2020, 1, 15, 0, 0);
+
+        assertEquals(expected, JsonDecoder.formatDate(
+                "/Date(1579042800000)/"));
+        assertEquals(expected, JsonDecoder.formatDate(
+                "/Date(1579042800000+0100)/"));
+    }
+
+    @Test
+    void unparsableDateIsNull() {
+
+        assertNull(JsonDecoder.formatDate(null));
+        assertNull(JsonDecoder.formatDate("2020-01-14"));
+        assertNull(JsonDecoder.formatDate("/Date()/"));
+        assertNull(JsonDecoder.formatDate("/Date(abc)/"));
+    }
+
+    private static ByteArrayInputStream body(String json) {
+
+        return new ByteArrayInputStream(
+                json.getBytes(StandardCharsets.UTF_8));
+    }
+}
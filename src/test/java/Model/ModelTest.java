@@ -0,0 +1,180 @@
+package Model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+    private static final int CHANNEL = 132;
+
+    private FakeParser parser;
+    private Model model;
+
+    @BeforeEach
+    void setUp() {
+
+        parser = new FakeParser();
+
+        //the night show runs over midnight and is listed on the day it
+        //starts, the day before the window
+        parser.day(DAY.minusDays(1))
+                .add(1, "evening", null, null, time(-1, 20), time(-1, 23))
+                .add(2, "night", null, null, time(-1, 23), time(0, 1));
+        parser.day(DAY)
+                .add(3, "morning", null, null, time(0, 1), time(0, 6))
+                .add(4, "day", null, null, time(0, 6), time(0, 12));
+
+        model = new Model(parser, new NoStore());
+        model.loadChannels();
+    }
+
+    @Test
+    void programAtFindsAProgramStartedTheDayBefore() {
+
+        Program program = model.getProgramAt("P1", time(0, 0).plusMinutes(30));
+
+        assertEquals(2, program.getId());
+        assertTrue(parser.fetched.contains(DAY.minusDays(1)));
+    }
+
+    @Test
+    void programAtAStartIsTheProgramStarting() {
+
+        assertEquals(3, model.getProgramAt("P1", time(0, 1)).getId());
+        assertEquals(4, model.getProgramAt("P1", time(0, 6)).getId());
+        assertNull(model.getProgramAt("P1", time(0, 12)));
+    }
+
+    @Test
+    void programsOverlappingAWindowAfterMidnight() {
+
+        List<Program> programs = model.getPrograms("P1", time(0, 0),
+                time(0, 6));
+
+        assertEquals(List.of(2, 3), ids(programs));
+    }
+
+    @Test
+    void programsOverlappingAWindowOverMidnight() {
+
+        List<Program> programs = model.getPrograms("P1", time(-1, 22),
+                time(0, 7));
+
+        assertEquals(List.of(1, 2, 3, 4), ids(programs));
+    }
+
+    @Test
+    void emptyWindowHasNoPrograms() {
+
+        assertTrue(model.getPrograms("P1", time(0, 13), time(0, 14))
+                .isEmpty());
+    }
+
+    @Test
+    void unknownChannelHasNoPrograms() {
+
+        assertTrue(model.getPrograms("P9", time(0, 0), time(0, 6)).isEmpty());
+        assertNull(model.getProgramAt("P9", time(0, 2)));
+        assertTrue(parser.fetched.isEmpty());
+    }
+
+    @Test
+    void heldDaysAreNotFetchedAgain() {
+
+        model.getProgramAt("P1", time(0, 2));
+        int fetched = parser.fetched.size();
+
+        model.getPrograms("P1", time(0, 0), time(0, 6));
+
+        assertEquals(fetched, parser.fetched.size());
+    }
+
+    private static LocalDateTime time(int dayOffset, int hour) {
+
+        return DAY.plusDays(dayOffset).atTime(hour, 0);
+    }
+
+    private static List<Integer> ids(List<Program> programs) {
+
+        var ids = new ArrayList<Integer>();
+
+        for (Program p : programs) {
+            ids.add(p.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Store that never writes, the tests do not touch the disk.
+     */
+    private static class NoStore extends ScheduleStore {
+
+        NoStore() {
+
+            super(Paths.get("unused"));
+        }
+
+        @Override
+        synchronized void save(
+                List<Channel> channels,
+                Map<ScheduleCache.Key, ScheduleColumns> schedules) {
+        }
+    }
+
+    /**
+     * Answers from schedules held in memory instead of the API.
+     */
+    private static class FakeParser extends XmlParser {
+
+        private final Map<LocalDate, ScheduleColumns.Builder> days =
+                new HashMap<>();
+        final List<LocalDate> fetched = new ArrayList<>();
+
+        FakeParser() {
+
+            super(ParserEngine.STAX, (url, conditional) -> {
+                throw new AssertionError("Unexpected request " + url);
+            }, XmlParser.DEFAULT_BASE_URL);
+        }
+
+        ScheduleColumns.Builder day(LocalDate date) {
+
+            return days.computeIfAbsent(date,
+                    d -> new ScheduleColumns.Builder());
+        }
+
+        @Override
+        public ArrayList<Channel> channelParser() {
+
+            var channels = new ArrayList<Channel>();
+            channels.add(new Channel(CHANNEL, "P1", null));
+            return channels;
+        }
+
+        @Override
+        public synchronized ScheduleColumns channelEpisodes(
+                int channelId, LocalDate date,
+                Consumer<List<Program>> progress) {
+
+            fetched.add(date);
+            var day = days.get(date);
+
+            return channelId != CHANNEL || day == null
+                    ? ScheduleColumns.EMPTY : day.build();
+        }
+    }
+}
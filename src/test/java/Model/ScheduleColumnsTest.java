@@ -0,0 +1,225 @@
+package Model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduleColumnsTest {
+
+    private static final LocalDateTime DAY =
+            LocalDateTime.of(2024, 3, 10, 0, 0);
+
+    @Test
+    void emptyScheduleHasNothingOnAir() {
+
+        ScheduleColumns empty = new ScheduleColumns.Builder().build();
+
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.firstStartingAt(at(12, 0)));
+        assertTrue(empty.overlapping(at(0, 0), at(23, 0)).isEmpty());
+        assertTrue(empty.starting(at(0, 0), at(23, 0)).isEmpty());
+        assertNull(empty.at(at(12, 0)));
+        assertEquals(ScheduleColumns.NO_TIME, empty.firstStart());
+        assertEquals(ScheduleColumns.NO_TIME, empty.lastEnd());
+        assertSame(ScheduleColumns.EMPTY, ScheduleColumns.merge(List.of()));
+    }
+
+    @Test
+    void rowsAreSortedByStart() {
+
+        ScheduleColumns schedule = new ScheduleColumns.Builder()
+                .add(3, "c", null, null, time(14, 0), time(15, 0))
+                .add(1, "a", null, null, time(10, 0), time(11, 0))
+                .add(2, "b", null, null, time(12, 0), time(13, 0))
+                .build();
+
+        assertEquals(List.of(1, 2, 3), ids(schedule.programs()));
+        assertEquals(at(10, 0), schedule.firstStart());
+        assertEquals(at(15, 0), schedule.lastEnd());
+    }
+
+    @Test
+    void firstStartingAtFindsTheBoundary() {
+
+        ScheduleColumns schedule = backToBack();
+
+        assertEquals(0, schedule.firstStartingAt(at(9, 0)));
+        assertEquals(0, schedule.firstStartingAt(at(10, 0)));
+        assertEquals(1, schedule.firstStartingAt(at(10, 0) + 1));
+        assertEquals(2, schedule.firstStartingAt(at(12, 0)));
+        assertEquals(3, schedule.firstStartingAt(at(12, 0) + 1));
+    }
+
+    @Test
+    void atAnEndIsTheNextProgram() {
+
+        ScheduleColumns schedule = backToBack();
+
+        assertEquals(1, schedule.at(at(10, 0)).getId());
+        assertEquals(1, schedule.at(at(10, 59)).getId());
+        assertEquals(2, schedule.at(at(11, 0)).getId());
+        assertEquals(3, schedule.at(at(12, 0)).getId());
+        assertNull(schedule.at(at(13, 0)));
+        assertNull(schedule.at(at(10, 0) - 1));
+    }
+
+    @Test
+    void atInAGapIsNothing() {
+
+        ScheduleColumns schedule = new ScheduleColumns.Builder()
+                .add(1, "a", null, null, time(10, 0), time(11, 0))
+                .add(2, "b", null, null, time(12, 0), time(13, 0))
+                .build();
+
+        assertNull(schedule.at(at(11, 0)));
+        assertNull(schedule.at(at(11, 30)));
+        assertEquals(2, schedule.at(at(12, 0)).getId());
+    }
+
+    @Test
+    void overlappingLeavesOutProgramsTouchingTheWindow() {
+
+        ScheduleColumns schedule = backToBack();
+
+        //ends exactly at the start, starts exactly at the end
+        assertEquals(List.of(2), ids(schedule.overlapping(at(11, 0),
+                at(12, 0))));
+        assertEquals(List.of(1, 2), ids(schedule.overlapping(at(10, 30),
+                at(11, 30))));
+        assertEquals(List.of(1, 2, 3), ids(schedule.overlapping(at(0, 0),
+                at(23, 0))));
+        assertTrue(schedule.overlapping(at(13, 0), at(14, 0)).isEmpty());
+    }
+
+    @Test
+    void longProgramIsFoundPastShorterOnesInside() {
+
+        //the short programs end before the long one, so only the running
+        //maximum of the end times finds it
+        ScheduleColumns schedule = new ScheduleColumns.Builder()
+                .add(1, "long", null, null, time(10, 0), time(14, 0))
+                .add(2, "short", null, null, time(11, 0), time(12, 0))
+                .add(3, "shorter", null, null, time(12, 0), time(12, 30))
+                .build();
+
+        assertEquals(2, schedule.at(at(11, 30)).getId());
+        assertEquals(1, schedule.at(at(12, 30)).getId());
+        assertEquals(1, schedule.at(at(13, 0)).getId());
+        assertEquals(List.of(1), ids(schedule.overlapping(at(12, 30),
+                at(13, 0))));
+        assertEquals(List.of(1, 3), ids(schedule.overlapping(at(12, 0),
+                at(12, 15))));
+        assertEquals(at(14, 0), schedule.lastEnd());
+    }
+
+    @Test
+    void rowsWithoutTimesAreNeverOnAir() {
+
+        ScheduleColumns schedule = new ScheduleColumns.Builder()
+                .add(1, "no times", null, null, null, null)
+                .add(2, "no end", null, null, time(10, 0), null)
+                .add(3, "b", null, null, time(11, 0), time(12, 0))
+                .build();
+
+        assertEquals(List.of(1, 2, 3), ids(schedule.programs()));
+        assertEquals(ScheduleColumns.NO_TIME, schedule.firstStart());
+        assertNull(schedule.programs().get(0).getStartTime());
+        assertNull(schedule.at(at(10, 30)));
+        assertEquals(3, schedule.at(at(11, 30)).getId());
+        assertEquals(List.of(3), ids(schedule.overlapping(at(0, 0),
+                at(23, 0))));
+        assertEquals(List.of(2, 3), ids(schedule.starting(at(0, 0),
+                at(23, 0))));
+    }
+
+    @Test
+    void mergeKeepsRepeatedProgramsOnce() {
+
+        //a program over midnight is sent with both days
+        ScheduleColumns first = new ScheduleColumns.Builder()
+                .add(1, "a", null, null, time(22, 0), time(23, 0))
+                .add(2, "b", null, null, time(23, 0), time(25, 0))
+                .build();
+        ScheduleColumns second = new ScheduleColumns.Builder()
+                .add(2, "b", null, null, time(23, 0), time(25, 0))
+                .add(4, "same start", null, null, time(23, 0), time(24, 0))
+                .add(3, "c", null, null, time(25, 0), time(26, 0))
+                .build();
+
+        ScheduleColumns merged = ScheduleColumns.merge(
+                List.of(first, second));
+
+        assertEquals(4, merged.size());
+        assertEquals(List.of(1, 2, 4, 3), ids(merged.programs()));
+        assertEquals(2, merged.at(at(24, 30)).getId());
+        assertEquals("c", merged.at(at(25, 0)).getTitle());
+    }
+
+    @Test
+    void mergeOfOnePartIsThatPart() {
+
+        ScheduleColumns schedule = backToBack();
+
+        assertSame(schedule, ScheduleColumns.merge(List.of(schedule)));
+    }
+
+    @Test
+    void mergeReadsTextFromEveryPool() {
+
+        ScheduleColumns first = new ScheduleColumns.Builder(new StringPool())
+                .add(1, "a", "first", null, time(10, 0), time(11, 0))
+                .build();
+        ScheduleColumns second = new ScheduleColumns.Builder(new StringPool())
+                .add(2, "b", "second", "b.png", time(11, 0), time(12, 0))
+                .build();
+
+        ScheduleColumns merged = ScheduleColumns.merge(
+                List.of(second, first));
+
+        assertEquals("a", merged.titleAt(0));
+        assertEquals("first", merged.descriptionAt(0));
+        assertNull(merged.imageUrlAt(0));
+        assertEquals("b", merged.titleAt(1));
+        assertEquals("b.png", merged.imageUrlAt(1));
+    }
+
+    /**
+     * @return three programs from 10 to 13, each starting when the one
+     * before ends
+     */
+    private static ScheduleColumns backToBack() {
+
+        return new ScheduleColumns.Builder()
+                .add(1, "a", null, null, time(10, 0), time(11, 0))
+                .add(2, "b", null, null, time(11, 0), time(12, 0))
+                .add(3, "c", null, null, time(12, 0), time(13, 0))
+                .build();
+    }
+
+    private static LocalDateTime time(int hour, int minute) {
+
+        return DAY.plusHours(hour).plusMinutes(minute);
+    }
+
+    private static long at(int hour, int minute) {
+
+        return ScheduleColumns.toEpochSecond(time(hour, minute));
+    }
+
+    private static List<Integer> ids(List<Program> programs) {
+
+        var ids = new ArrayList<Integer>();
+
+        for (Program p : programs) {
+            ids.add(p.getId());
+        }
+        return ids;
+    }
+}